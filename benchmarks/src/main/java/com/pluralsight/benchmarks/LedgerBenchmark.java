@@ -0,0 +1,123 @@
+package com.pluralsight.benchmarks;
+
+import com.pluralsight.Reports;
+import com.pluralsight.Transaction;
+import com.pluralsight.TransactionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Load, save, sort/list, filter and report paths of TransactionManager and Reports
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class LedgerBenchmark {
+
+    // Random query arguments, so every call doesn't hit the same vendor or dates
+    @State(Scope.Thread)
+    public static class Queries {
+        SplittableRandom random = new SplittableRandom(7);
+        Reports reports;
+
+        @Setup
+        public void setUp(LedgerState ledger) {
+            reports = new Reports(ledger.manager);
+        }
+
+        String vendor(LedgerState ledger) {
+            return "vendor" + random.nextInt(ledger.vendors); // lower case on purpose: lookups ignore case
+        }
+
+        LocalDate date(LedgerState ledger) {
+            return LocalDate.now().minusDays(random.nextInt(ledger.spanDays));
+        }
+    }
+
+    // Reads every row of a result the way the ledger screen would
+    private static void consume(List<Transaction> list, Blackhole blackhole) {
+        for (int i = 0; i < list.size(); i++) {
+            blackhole.consume(list.get(i));
+        }
+    }
+
+    @Benchmark
+    public void loadTransactions(LedgerState ledger, Blackhole blackhole) {
+        TransactionManager manager = ledger.open();
+        blackhole.consume(manager.getAll().size());
+        manager.close();
+    }
+
+    @Benchmark
+    public boolean save(SaveState saves) {
+        return saves.manager.add(new Transaction(LocalDate.now(), LocalTime.now().withNano(0),
+                "benchmark entry", "Vendor1", new BigDecimal("-12.34")));
+    }
+
+    @Benchmark
+    public void getAll(LedgerState ledger, Blackhole blackhole) {
+        consume(ledger.manager.getAll(), blackhole);
+    }
+
+    @Benchmark
+    public void getDeposits(LedgerState ledger, Blackhole blackhole) {
+        consume(ledger.manager.getDeposits(), blackhole);
+    }
+
+    @Benchmark
+    public void getPayments(LedgerState ledger, Blackhole blackhole) {
+        consume(ledger.manager.getPayments(), blackhole);
+    }
+
+    @Benchmark
+    public void getByVendor(LedgerState ledger, Queries queries, Blackhole blackhole) {
+        consume(ledger.manager.getByVendor(queries.vendor(ledger)), blackhole);
+    }
+
+    @Benchmark
+    public void getByDateRange(LedgerState ledger, Queries queries, Blackhole blackhole) {
+        LocalDate start = queries.date(ledger);
+        consume(ledger.manager.getByDateRange(start, start.plusDays(30)), blackhole);
+    }
+
+    @Benchmark
+    public void reportMonthToDate(Queries queries) {
+        queries.reports.showMonthToDate();
+    }
+
+    @Benchmark
+    public void reportPreviousMonth(Queries queries) {
+        queries.reports.showPreviousMonth();
+    }
+
+    @Benchmark
+    public void reportYearToDate(Queries queries) {
+        queries.reports.showYearToDate();
+    }
+
+    @Benchmark
+    public void reportPreviousYear(Queries queries) {
+        queries.reports.showPreviousYear();
+    }
+
+    @Benchmark
+    public void reportByVendor(LedgerState ledger, Queries queries) {
+        queries.reports.showByVendor(queries.vendor(ledger));
+    }
+}
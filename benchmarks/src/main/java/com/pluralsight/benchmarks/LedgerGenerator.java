@@ -0,0 +1,58 @@
+package com.pluralsight.benchmarks;
+
+import com.pluralsight.Transaction;
+import com.pluralsight.TransactionCodec;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.SplittableRandom;
+
+// Writes a synthetic transactions.csv: rows in date order spread over the last spanDays days,
+// vendorCount distinct vendors, roughly one deposit for every four payments. Same seed, same file.
+public class LedgerGenerator {
+
+    private static final String HEADER = "date|time|description|vendor|amount";
+    private static final String[] WORDS = {"Office", "Supplies", "Coffee", "Invoice", "Rent", "Lunch", "Software",
+            "Subscription", "Keyboard", "Hosting", "Freelance", "Payment", "Consulting", "Travel", "Fuel", "Chair"};
+
+    public static void generate(Path file, int rows, int vendorCount, int spanDays, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        LocalDate first = LocalDate.now().minusDays(spanDays - 1L);
+        StringBuilder line = new StringBuilder(128);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (int i = 0; i < rows; i++) {
+                // Spread the rows evenly over the span so the file is already in date order
+                LocalDate date = first.plusDays((long) i * spanDays / rows);
+                LocalTime time = LocalTime.ofSecondOfDay(random.nextInt(86_400));
+                String description = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                        + " " + random.nextInt(10_000);
+                String vendor = "Vendor" + random.nextInt(vendorCount);
+                long cents = random.nextInt(5) == 0 ? random.nextInt(1, 500_000) : -random.nextInt(1, 50_000);
+
+                line.setLength(0);
+                TransactionCodec.appendCSV(new Transaction(date, time, description, vendor, BigDecimal.valueOf(cents, 2)), line);
+                writer.append(line);
+                writer.newLine();
+            }
+        }
+    }
+
+    // java -cp benchmarks.jar com.pluralsight.benchmarks.LedgerGenerator <file> <rows> [vendors] [spanDays]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("usage: LedgerGenerator <file> <rows> [vendors=300] [spanDays=1825]");
+            return;
+        }
+        int vendors = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+        int spanDays = args.length > 3 ? Integer.parseInt(args[3]) : 1825;
+        generate(Path.of(args[0]), Integer.parseInt(args[1]), vendors, spanDays, 42);
+    }
+}
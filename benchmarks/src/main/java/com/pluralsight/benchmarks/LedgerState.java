@@ -0,0 +1,83 @@
+package com.pluralsight.benchmarks;
+
+import com.pluralsight.StorageLayout;
+import com.pluralsight.SyncPolicy;
+import com.pluralsight.TransactionManager;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// A generated ledger on disk plus a TransactionManager loaded from it, shared by the benchmarks.
+// Sizes from 10k to 10M rows: -p rows=10000000 for the largest.
+// The load benchmark opens its own copy of the file (loadCsv), so it never shares the CSV and write-ahead
+// log with the open manager, or sees the rows save adds to them.
+@State(Scope.Benchmark)
+public class LedgerState {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"300"})
+    public int vendors;
+
+    @Param({"1825"})
+    public int spanDays;
+
+    @Param({"ROWS", "COLUMNAR"})
+    public StorageLayout layout;
+
+    public Path directory;
+    public Path csv;
+    public Path loadCsv; // same rows, in a directory of its own
+    public TransactionManager manager;
+    private PrintStream console;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ledger-bench");
+        csv = directory.resolve("transactions.csv");
+        LedgerGenerator.generate(csv, rows, vendors, spanDays, 42);
+        loadCsv = copy(csv, directory.resolve("load"));
+
+        // Reports print their rows; keep that out of the measurements
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        manager = new TransactionManager(csv.toString(), SyncPolicy.NEVER, layout);
+    }
+
+    // A new manager loaded from the load copy
+    public TransactionManager open() {
+        return new TransactionManager(loadCsv.toString(), SyncPolicy.NEVER, layout);
+    }
+
+    // Copies file into directory (created if needed) and returns the copy
+    static Path copy(Path file, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return Files.copy(file, directory.resolve(file.getFileName()));
+    }
+
+    static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+        System.setOut(console);
+        delete(directory);
+    }
+}
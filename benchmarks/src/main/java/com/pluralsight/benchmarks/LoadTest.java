@@ -0,0 +1,161 @@
+package com.pluralsight.benchmarks;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Load test for the ledger's server mode (AccountingLedgarApp --serve). Keeps up to `concurrency` requests
+// in flight against a running server, mixing ledger pages, filters, vendor searches, date ranges, reports
+// and new deposits/payments, then prints throughput and p50/p99 latency per endpoint.
+//
+//   java -cp benchmarks.jar com.pluralsight.benchmarks.LoadTest [url=http://localhost:8080]
+//        [--requests 50000] [--concurrency 2000] [--writes 10] [--vendors 300]
+//
+// --writes is the percentage of requests that post a transaction. --vendors should match the ledger
+// (LedgerGenerator names vendors Vendor0, Vendor1, ...). The first tenth of the requests warm up and
+// are not counted.
+public class LoadTest {
+
+    private static final String[] KINDS = {"ledger page", "deposits", "payments", "vendor", "date range",
+            "report", "add"};
+
+    public static void main(String[] args) throws Exception {
+        String url = "http://localhost:8080";
+        int requests = 50_000;
+        int concurrency = 2_000;
+        int writePercent = 10;
+        int vendors = 300;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--requests": requests = Integer.parseInt(args[++i]); break;
+                case "--concurrency": concurrency = Integer.parseInt(args[++i]); break;
+                case "--writes": writePercent = Integer.parseInt(args[++i]); break;
+                case "--vendors": vendors = Integer.parseInt(args[++i]); break;
+                default: url = args[i];
+            }
+        }
+        run(url, requests, concurrency, writePercent, vendors);
+    }
+
+    static void run(String url, int requests, int concurrency, int writePercent, int vendors) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        int warmup = requests / 10;
+        int total = warmup + requests;
+
+        long[] latencies = new long[requests]; // nanoseconds, in the order requests were issued
+        byte[] kinds = new byte[requests];
+        AtomicInteger failures = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(concurrency);
+        CountDownLatch done = new CountDownLatch(total);
+        SplittableRandom random = new SplittableRandom(7);
+        LocalDate today = LocalDate.now();
+
+        System.out.println("Sending " + requests + " requests (+" + warmup + " warm-up) to " + url
+                + " with up to " + concurrency + " in flight, " + writePercent + "% writes");
+        long measuredStart = 0;
+        for (int i = 0; i < total; i++) {
+            if (i == warmup) {
+                inFlight.acquire(concurrency); // let the warm-up drain before timing starts
+                inFlight.release(concurrency);
+                measuredStart = System.nanoTime();
+            }
+            int kind = random.nextInt(100) < writePercent ? 6 : random.nextInt(6);
+            HttpRequest request = request(url, kind, random, today, vendors);
+
+            inFlight.acquire();
+            int slot = i - warmup;
+            long start = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                long elapsed = System.nanoTime() - start;
+                if (error != null || response.statusCode() >= 300) {
+                    failures.incrementAndGet();
+                }
+                if (slot >= 0) {
+                    latencies[slot] = elapsed;
+                    kinds[slot] = (byte) kind;
+                }
+                inFlight.release();
+                done.countDown();
+            });
+        }
+        done.await();
+        long elapsedNanos = System.nanoTime() - measuredStart;
+
+        System.out.printf("%-12s %8s %10s %10s %10s%n", "endpoint", "requests", "p50 ms", "p99 ms", "max ms");
+        for (int kind = 0; kind < KINDS.length; kind++) {
+            report(KINDS[kind], latencies, kinds, kind);
+        }
+        report("all", latencies, kinds, -1);
+        System.out.printf("Throughput: %.0f requests/s   Failures: %d%n",
+                requests / (elapsedNanos / 1e9), failures.get());
+    }
+
+    private static HttpRequest request(String url, int kind, SplittableRandom random, LocalDate today, int vendors) {
+        int offset = random.nextInt(4) * 50; // mostly the first few pages
+        String page = "offset=" + offset + "&limit=50";
+        switch (kind) {
+            case 0: return get(url + "/ledger?" + page);
+            case 1: return get(url + "/ledger/deposits?" + page);
+            case 2: return get(url + "/ledger/payments?" + page);
+            case 3: return get(url + "/ledger/vendor?name=" + encode("Vendor" + random.nextInt(vendors)) + "&" + page);
+            case 4: {
+                LocalDate start = today.minusDays(random.nextInt(1_800));
+                return get(url + "/ledger/range?start=" + start + "&end=" + start.plusDays(random.nextInt(1, 60)) + "&" + page);
+            }
+            case 5: {
+                String[] reports = {"month-to-date", "previous-month", "year-to-date", "previous-year"};
+                return get(url + "/reports/" + reports[random.nextInt(reports.length)] + "?" + page);
+            }
+            default: {
+                boolean deposit = random.nextInt(5) == 0;
+                String body = "{\"description\":\"load test " + random.nextInt(10_000) + "\",\"vendor\":\"Vendor"
+                        + random.nextInt(vendors) + "\",\"amount\":" + random.nextInt(1, 100_000) / 100.0 + "}";
+                return HttpRequest.newBuilder(URI.create(url + (deposit ? "/deposits" : "/payments")))
+                        .timeout(Duration.ofSeconds(60))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+            }
+        }
+    }
+
+    private static HttpRequest get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).timeout(Duration.ofSeconds(60)).GET().build();
+    }
+
+    private static String encode(String text) {
+        return URLEncoder.encode(text, StandardCharsets.UTF_8);
+    }
+
+    // Prints count, p50, p99 and max for one kind of request (kind -1 = every request)
+    private static void report(String name, long[] latencies, byte[] kinds, int kind) {
+        long[] selected = new long[latencies.length];
+        int count = 0;
+        for (int i = 0; i < latencies.length; i++) {
+            if (kind < 0 || kinds[i] == kind) {
+                selected[count++] = latencies[i];
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        Arrays.sort(selected, 0, count);
+        System.out.printf("%-12s %8d %10.2f %10.2f %10.2f%n", name, count,
+                selected[(count - 1) / 2] / 1e6,
+                selected[(int) Math.ceil(count * 0.99) - 1] / 1e6,
+                selected[count - 1] / 1e6);
+    }
+}
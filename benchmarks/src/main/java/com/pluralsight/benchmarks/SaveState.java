@@ -0,0 +1,39 @@
+package com.pluralsight.benchmarks;
+
+import com.pluralsight.SyncPolicy;
+import com.pluralsight.TransactionManager;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// A manager for the save benchmark, on its own copy of the generated ledger, for each sync policy.
+// NEVER measures the append alone; GROUP and ALWAYS add the write-ahead log forces a real ledger pays for.
+@State(Scope.Benchmark)
+public class SaveState {
+
+    @Param({"NEVER", "GROUP", "ALWAYS"})
+    public SyncPolicy sync;
+
+    public TransactionManager manager;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp(LedgerState ledger) throws IOException {
+        directory = Files.createTempDirectory("ledger-save");
+        Path csv = LedgerState.copy(ledger.csv, directory);
+        manager = new TransactionManager(csv.toString(), sync, ledger.layout);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+        LedgerState.delete(directory);
+    }
+}
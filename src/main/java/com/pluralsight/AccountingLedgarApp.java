@@ -1,10 +1,47 @@
 package com.pluralsight;
 import java.util.Scanner;//gets user input
 import java.nio.file.*;//creating, reading, and writing the transaction.csv file
+import java.util.List;
+import java.math.BigDecimal;
 import java.time.*;//brings LocalDate, LocalTime, and LocalDateTime classes into program.
 public class AccountingLedgarApp {
+    private static boolean partitioned; // --partitioned: months before the hot ones live in per-month files
+
     public static void main(String[] args) {
-        TransactionManager manager = new TransactionManager("transactions.csv");//manages and displays transactions from the CSV file.
+        // --columnar keeps the ledger in compact primitive columns instead of one object per row
+        StorageLayout layout = StorageLayout.ROWS;
+        for (String arg : args) {
+            if (arg.equals("--columnar")) {
+                layout = StorageLayout.COLUMNAR;
+            } else if (arg.equals("--partitioned")) {
+                partitioned = true;
+            }
+        }
+
+        // Conversions run instead of the menu
+        for (String arg : args) {
+            if (arg.equals("--to-snapshot")) {
+                convertToSnapshot("transactions.csv", layout);
+                return;
+            } else if (arg.equals("--to-csv")) {
+                convertToCsv("transactions.csv");
+                return;
+            }
+        }
+
+        // --serve [port] runs the JSON service instead of the menu; --import <file> adds a file's rows and exits
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--import") && i + 1 < args.length) {
+                importFile("transactions.csv", layout, args[i + 1]);
+                return;
+            } else if (args[i].equals("--serve")) {
+                int port = i + 1 < args.length && args[i + 1].matches("\\d+") ? Integer.parseInt(args[i + 1]) : 8080;
+                serve("transactions.csv", layout, port);
+                return;
+            }
+        }
+
+        TransactionManager manager = new TransactionManager("transactions.csv", SyncPolicy.GROUP, layout, partitioned);//manages and displays transactions from the CSV file.
         Reports reports = new Reports(manager);//allows Reports class to access transactions in TransactionManager
         Scanner scanner = new Scanner(System.in);
 
@@ -15,6 +52,7 @@ public class AccountingLedgarApp {
             System.out.println("D) Add Deposit");
             System.out.println("P) Make Payment (Debit)");
             System.out.println("L) Ledger");
+            System.out.println("S) Stats");
             System.out.println("X) Exit");
             System.out.print("Choose: ");
 
@@ -31,6 +69,9 @@ public class AccountingLedgarApp {
             } else if (choice.equals("L")) {
                 // Open ledger menu
                 showLedgerMenu (scanner, manager, reports);
+            } else if (choice.equals("S")) {
+                // Timings and row counts for everything done so far
+                showStats("transactions.csv");
             } else if (choice.equals("X")) {
                 // Exit program
                 System.out.println("Bye!");
@@ -40,8 +81,9 @@ public class AccountingLedgarApp {
                 System.out.println("Invalid.try again.");
             }
         }
-        // Closes the scanner
+        // Closes the scanner and flushes the ledger file
         scanner.close();
+        manager.close();
     }
 
     private static void showLedgerMenu(Scanner scanner, TransactionManager manager, Reports reports) {
@@ -58,17 +100,17 @@ public class AccountingLedgarApp {
             String choice = scanner.nextLine().trim().toUpperCase();
 
             if (choice.equals("A")) {
-                // Display all transactions
-                manager.display(manager.getAll());
+                // Display all transactions, a page at a time
+                showPages(scanner, manager, manager.getAll());
             } else if (choice.equals("D")) {
                 // Display deposits only
-                manager.display(manager.getDeposits());
+                showPages(scanner, manager, manager.getDeposits());
             } else if (choice.equals("P")) {
                 // Display payments only
-                manager.display(manager.getPayments());
+                showPages(scanner, manager, manager.getPayments());
             } else if (choice.equals("R")) {
                 // Go to reports menu
-                showReportsMenu(scanner, reports);
+                showReportsMenu(scanner, reports, manager);
             } else if (choice.equals("H")) {
                 // Return to home menu
                 inLedger = false;
@@ -77,8 +119,74 @@ public class AccountingLedgarApp {
             }
         }
     }
+    //PAGED LISTS________________
+    // Shows a list pageSize rows at a time. Only the rows on the page are read from the list,
+    // so paging through a million-row ledger never copies or prints the whole thing.
+    private static int pageSize = 20; // kept for the rest of the session once changed
+
+    private static void showPages(Scanner scanner, TransactionManager manager, List<Transaction> list) {
+        int offset = 0;
+        boolean showPage = true;
+        while (true) {
+            if (showPage) {
+                manager.displayPage(list, offset, pageSize);
+            }
+            if (list.size() <= pageSize) {
+                return; // everything fit on one page
+            }
+            showPage = true;
+            int last = Math.min(offset + pageSize, list.size());
+            System.out.println("Showing " + (offset + 1) + "-" + last + " of " + list.size());
+            System.out.print("N) Next page  B) Previous page  G) Go to row  S) Page size  H) Back: ");
+
+            String choice = scanner.nextLine().trim().toUpperCase();
+            if (choice.equals("N") || choice.isEmpty()) { // Enter also moves on
+                if (last < list.size()) {
+                    offset = last;
+                } else {
+                    System.out.println("That was the last page.");
+                    showPage = false;
+                }
+            } else if (choice.equals("B")) {
+                offset = Math.max(0, offset - pageSize);
+            } else if (choice.equals("G")) {
+                System.out.print("Row number (1-" + list.size() + "): ");
+                Integer row = readNumber(scanner);
+                if (row != null && row >= 1 && row <= list.size()) {
+                    offset = row - 1;
+                } else {
+                    System.out.println("Invalid row.");
+                    showPage = false;
+                }
+            } else if (choice.equals("S")) {
+                System.out.print("Rows per page: ");
+                Integer size = readNumber(scanner);
+                if (size != null && size > 0) {
+                    pageSize = size;
+                } else {
+                    System.out.println("Invalid page size.");
+                    showPage = false;
+                }
+            } else if (choice.equals("H")) {
+                return; // back to the ledger menu
+            } else {
+                System.out.println("Invalid choice. Please try again.");
+                showPage = false;
+            }
+        }
+    }
+
+    // Reads a whole number, or returns null if the line isn't one
+    private static Integer readNumber(Scanner scanner) {
+        try {
+            return Integer.parseInt(scanner.nextLine().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     //Reports Menu________________
-    private static void showReportsMenu(Scanner scanner, Reports reports) {
+    private static void showReportsMenu(Scanner scanner, Reports reports, TransactionManager manager) {
         boolean inReports = true;
         while (inReports) {
             System.out.println("\n=== REPORTS MENU ===");
@@ -87,6 +195,12 @@ public class AccountingLedgarApp {
             System.out.println("3) Year To Date");
             System.out.println("4) Previous Year");
             System.out.println("5) Search by Vendor");
+            System.out.println("6) Custom Search");
+            System.out.println("7) Balance On A Date");
+            System.out.println("8) Net Flow Between Dates");
+            System.out.println("9) Daily Balances");
+            System.out.println("10) Monthly Balances");
+            System.out.println("11) Search Descriptions");
             System.out.println("0) Back");
             System.out.print("Choose: ");
 
@@ -104,6 +218,33 @@ public class AccountingLedgarApp {
                 System.out.print("Enter vendor name: ");
                 String vendor = scanner.nextLine();
                 reports.showByVendor(vendor);
+            } else if (choice.equals("6")) {
+                customSearch(scanner, reports, manager);
+            } else if (choice.equals("7")) {
+                LocalDate date = promptDate(scanner, "Date (yyyy-MM-dd, blank for today): ", LocalDate.now());
+                if (date != null) {
+                    reports.showBalance(date);
+                }
+            } else if (choice.equals("8") || choice.equals("9") || choice.equals("10")) {
+                // Blank dates default to the year to date
+                LocalDate start = promptDate(scanner, "Start date (yyyy-MM-dd, blank for Jan 1): ", LocalDate.now().withDayOfYear(1));
+                LocalDate end = start == null ? null : promptDate(scanner, "End date (yyyy-MM-dd, blank for today): ", LocalDate.now());
+                if (end == null) {
+                    continue;
+                }
+                if (end.isBefore(start)) {
+                    System.out.println("End date is before start date.");
+                } else if (choice.equals("8")) {
+                    reports.showNetFlow(start, end);
+                } else {
+                    reports.showBalanceSeries(start, end, choice.equals("10"));
+                }
+            } else if (choice.equals("11")) {
+                System.out.print("Words to find (end a word with * to match its start): ");
+                String words = scanner.nextLine().trim();
+                if (!words.isEmpty()) {
+                    reports.showSearch(words);
+                }
             } else if (choice.equals("0")) {
                 inReports = false; // Back to ledger menu
             } else {
@@ -111,4 +252,147 @@ public class AccountingLedgarApp {
             }
         }
     }
-}
\ No newline at end of file
+
+    // Reads a date; blank gives fallback, anything unreadable prints a message and gives null
+    private static LocalDate promptDate(Scanner scanner, String prompt, LocalDate fallback) {
+        System.out.print(prompt);
+        String text = scanner.nextLine().trim();
+        if (text.isEmpty()) {
+            return fallback;
+        }
+        try {
+            return LocalDate.parse(text);
+        } catch (java.time.format.DateTimeParseException e) {
+            System.out.println("Invalid date.");
+            return null;
+        }
+    }
+
+    //STATS______________________
+    // Prints the LedgerMetrics table and saves the same numbers as JSON next to the CSV for scripts to read
+    private static void showStats(String filePath) {
+        System.out.println("\n=== STATS ===");
+        System.out.print(LedgerMetrics.toTable());
+        Path statsFile = Path.of(filePath + ".stats.json");
+        try {
+            Files.writeString(statsFile, LedgerMetrics.toJson());
+            System.out.println("Saved to " + statsFile);
+        } catch (java.io.IOException e) {
+            System.out.println("Error saving stats: " + e.getMessage());
+        }
+    }
+
+    //BULK IMPORT________________
+    private static void importFile(String filePath, StorageLayout layout, String importPath) {
+        TransactionManager manager = new TransactionManager(filePath, SyncPolicy.GROUP, layout, partitioned);
+        try {
+            BulkImport.Result result = manager.importFile(Path.of(importPath));
+            List<TransactionLoader.LoadError> rejects = result.getRejects();
+            for (int i = 0; i < rejects.size() && i < 20; i++) {
+                System.out.println("Rejected " + rejects.get(i));
+            }
+            if (rejects.size() > 20) {
+                System.out.println("...and " + (rejects.size() - 20) + " more rejected lines.");
+            }
+            System.out.println(result);
+        } catch (java.io.IOException e) {
+            System.out.println("Error reading " + importPath + ": " + e.getMessage());
+        }
+        manager.close();
+    }
+
+    //SERVER MODE________________
+    // Serves the ledger over HTTP until the process is stopped (Ctrl+C), then flushes the file
+    private static void serve(String filePath, StorageLayout layout, int port) {
+        TransactionManager manager = new TransactionManager(filePath, SyncPolicy.GROUP, layout, partitioned);
+        LedgerServer server;
+        try {
+            server = new LedgerServer(manager, port);
+        } catch (java.io.IOException e) {
+            System.out.println("Error starting server: " + e.getMessage());
+            manager.close();
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            manager.close();
+            System.out.println("Server stopped.");
+        }));
+        server.start();
+        System.out.println("Serving " + filePath + " on http://localhost:" + server.getPort() + "/ledger (Ctrl+C to stop)");
+    }
+
+    //CUSTOM SEARCH______________
+    // Every prompt can be left blank; the filled-in ones are combined into one query
+    private static void customSearch(Scanner scanner, Reports reports, TransactionManager manager) {
+        LedgerQuery query = manager.query();
+        try {
+            System.out.print("Start date (yyyy-MM-dd, blank for any): ");
+            String start = scanner.nextLine().trim();
+            System.out.print("End date (yyyy-MM-dd, blank for any): ");
+            String end = scanner.nextLine().trim();
+            query.between(start.isEmpty() ? null : LocalDate.parse(start), end.isEmpty() ? null : LocalDate.parse(end));
+        } catch (java.time.format.DateTimeParseException e) {
+            System.out.println("Invalid date. Search cancelled.");
+            return;
+        }
+
+        System.out.print("Description contains (blank for any): ");
+        query.descriptionContains(scanner.nextLine().trim());
+
+        System.out.print("Vendor (blank for any): ");
+        String vendor = scanner.nextLine().trim();
+        if (!vendor.isEmpty()) {
+            query.vendor(vendor);
+        }
+
+        System.out.print("Amount (blank for any): ");
+        String amount = scanner.nextLine().trim();
+        if (!amount.isEmpty()) {
+            try {
+                BigDecimal exact = new BigDecimal(amount);
+                query.amountBetween(exact, exact);
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid amount. Search cancelled.");
+                return;
+            }
+        }
+        reports.showQuery("Custom Search Results", query);
+    }
+
+    //CONVERSIONS________________
+    // CSV -> binary snapshot, timing a CSV load against a snapshot load of the same ledger
+    private static void convertToSnapshot(String filePath, StorageLayout layout) {
+        try {
+            Files.deleteIfExists(Path.of(filePath + ".snap")); // make sure the first load really parses the CSV
+        } catch (java.io.IOException e) {
+            System.out.println("Error removing old snapshot: " + e.getMessage());
+            return;
+        }
+
+        long start = System.nanoTime();
+        TransactionManager fromCsv = new TransactionManager(filePath, SyncPolicy.NEVER, layout, partitioned);
+        long csvMillis = (System.nanoTime() - start) / 1_000_000;
+        fromCsv.writeSnapshot();
+        fromCsv.close();
+
+        start = System.nanoTime();
+        TransactionManager fromSnapshot = new TransactionManager(filePath, SyncPolicy.NEVER, layout, partitioned);
+        long snapshotMillis = (System.nanoTime() - start) / 1_000_000;
+        fromSnapshot.close();
+
+        System.out.println("Wrote " + filePath + ".snap (" + fromSnapshot.getAll().size() + " transactions)");
+        System.out.println("Startup from CSV:      " + csvMillis + " ms");
+        System.out.println("Startup from snapshot: " + snapshotMillis + " ms");
+    }
+
+    // Binary snapshot -> CSV
+    private static void convertToCsv(String filePath) {
+        try {
+            TransactionManager.restoreCsvFromSnapshot(filePath);
+            System.out.println("Rewrote " + filePath + " from " + filePath + ".snap");
+        } catch (java.io.IOException e) {
+            System.out.println("Error converting snapshot: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.pluralsight;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+// Account balance and cash flow over time, read from the store's running balances (see RunningBalances).
+// Everything is whole cents in longs, so nothing is rounded or re-summed: the balance at the end of a day
+// is a binary search for the day's last row, and the net flow between two dates is two balances subtracted.
+// Reads the store as it was when LedgerStore.balances() was called.
+public class Balances {
+
+    private final LedgerRows rows;
+    private final RunningBalances sums;
+    private final ToLongFunction<LocalDate> elsewhere; // balance on a date of rows kept outside the store (cold months)
+
+    // One day or month of a series
+    public static class Point {
+        private final LocalDate start;
+        private final LocalDate end;
+        private final long flowCents;    // net of the amounts from start through end
+        private final long balanceCents; // balance at the end of end
+
+        Point(LocalDate start, LocalDate end, long flowCents, long balanceCents) {
+            this.start = start;
+            this.end = end;
+            this.flowCents = flowCents;
+            this.balanceCents = balanceCents;
+        }
+
+        public LocalDate getStart() { return start; }
+        public LocalDate getEnd() { return end; }
+        public long getFlowCents() { return flowCents; }
+        public long getBalanceCents() { return balanceCents; }
+        public BigDecimal getFlow() { return BigDecimal.valueOf(flowCents, 2); }
+        public BigDecimal getBalance() { return BigDecimal.valueOf(balanceCents, 2); }
+    }
+
+    Balances(LedgerRows rows, RunningBalances sums, ToLongFunction<LocalDate> elsewhere) {
+        this.rows = rows;
+        this.sums = sums;
+        this.elsewhere = elsewhere;
+    }
+
+    // BALANCE ON A DATE__________________________
+    // Balance at the end of date: every amount dated on or before it
+    public long balanceCents(LocalDate date) {
+        int end = LedgerStore.firstOnOrAfter(rows, date.plusDays(1));
+        return (end == 0 ? 0 : sums.through(end - 1)) + elsewhere.applyAsLong(date);
+    }
+
+    public BigDecimal balance(LocalDate date) {
+        return BigDecimal.valueOf(balanceCents(date), 2);
+    }
+
+    // NET FLOW___________________________________
+    // Net of the amounts dated start through end (inclusive)
+    public long netFlowCents(LocalDate start, LocalDate end) {
+        return balanceCents(end) - balanceCents(start.minusDays(1));
+    }
+
+    public BigDecimal netFlow(LocalDate start, LocalDate end) {
+        return BigDecimal.valueOf(netFlowCents(start, end), 2);
+    }
+
+    // SERIES_____________________________________
+    // One point per day from start through end
+    public List<Point> daily(LocalDate start, LocalDate end) {
+        ArrayList<Point> points = new ArrayList<>();
+        long previous = balanceCents(start.minusDays(1));
+        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+            long balance = balanceCents(day);
+            points.add(new Point(day, day, balance - previous, balance));
+            previous = balance;
+        }
+        return points;
+    }
+
+    // One point per calendar month touching start through end; the first and last are cut to the range
+    public List<Point> monthly(LocalDate start, LocalDate end) {
+        ArrayList<Point> points = new ArrayList<>();
+        long previous = balanceCents(start.minusDays(1));
+        for (YearMonth month = YearMonth.from(start); !month.atDay(1).isAfter(end); month = month.plusMonths(1)) {
+            LocalDate from = month.atDay(1).isBefore(start) ? start : month.atDay(1);
+            LocalDate to = month.atEndOfMonth().isAfter(end) ? end : month.atEndOfMonth();
+            long balance = balanceCents(to);
+            points.add(new Point(from, to, balance - previous, balance));
+            previous = balance;
+        }
+        return points;
+    }
+}
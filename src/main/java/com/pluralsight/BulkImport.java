@@ -0,0 +1,146 @@
+package com.pluralsight;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+// Bulk import of an external file (e.g. a bank export) into the ledger - see TransactionManager.importFile.
+// The file can be pipe-delimited like transactions.csv or comma-separated; either way the columns are
+// date, time, description, vendor, amount. Amounts must be whole cents, like entries typed in; a line with
+// a part cent is rejected and reported. Rows already in the ledger, matched on date, time, vendor
+// (ignoring case) and exact amount, are skipped. Identical rows within the file are all kept (two equal coffees
+// on one receipt are two transactions) - only as many of them are skipped as the ledger already has.
+public class BulkImport {
+
+    // What an import did
+    public static class Result {
+        private final long rows;                                // data rows read from the file
+        private final int imported;
+        private final int duplicates;
+        private final List<TransactionLoader.LoadError> rejects; // rows that failed to parse or validate
+        private final long nanos;
+
+        Result(long rows, int imported, int duplicates, List<TransactionLoader.LoadError> rejects, long nanos) {
+            this.rows = rows;
+            this.imported = imported;
+            this.duplicates = duplicates;
+            this.rejects = rejects;
+            this.nanos = nanos;
+        }
+
+        public long getRows() { return rows; }
+        public int getImported() { return imported; }
+        public int getDuplicates() { return duplicates; }
+        public List<TransactionLoader.LoadError> getRejects() { return rejects; }
+        public long getMillis() { return nanos / 1_000_000; }
+
+        public long getRowsPerSecond() {
+            return nanos == 0 ? rows : (long) (rows * 1e9 / nanos);
+        }
+
+        @Override
+        public String toString() {
+            return "Imported " + imported + " of " + rows + " rows (" + duplicates + " duplicates, "
+                    + rejects.size() + " rejected) in " + getMillis() + " ms - " + getRowsPerSecond() + " rows/s";
+        }
+    }
+
+    // DETECT THE DELIMITER_______________________
+    // '|' if the first line with any text has a pipe in it, otherwise ','
+    public static char delimiterOf(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] start = in.readNBytes(64 * 1024);
+            String text = new String(start, StandardCharsets.UTF_8);
+            for (String line : text.split("\n")) {
+                if (!line.isBlank()) {
+                    return line.indexOf('|') >= 0 ? '|' : ',';
+                }
+            }
+        }
+        return '|';
+    }
+
+    // DROP DUPLICATES____________________________
+    // Returns the rows of batch the ledger doesn't already have. Keys are counted, so a key the ledger has
+    // once skips one row of the batch and the batch's other rows with that key are kept.
+    // Only the ledger's rows inside the batch's date span are read: existing gives the rows dated first
+    // through last (inclusive), e.g. from the store's date index and any month files in that span.
+    static List<Transaction> withoutDuplicates(List<Transaction> batch,
+                                               BiFunction<LocalDate, LocalDate, List<Transaction>> existing,
+                                               int[] duplicates) {
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        LocalDate first = batch.get(0).getDate();
+        LocalDate last = first;
+        for (Transaction t : batch) {
+            if (t.getDate().isBefore(first)) {
+                first = t.getDate();
+            } else if (t.getDate().isAfter(last)) {
+                last = t.getDate();
+            }
+        }
+
+        HashMap<Key, Integer> stored = new HashMap<>(); // key -> copies in the ledger not yet matched
+        for (Transaction t : existing.apply(first, last)) {
+            stored.merge(new Key(t), 1, Integer::sum);
+        }
+        ArrayList<Transaction> fresh = new ArrayList<>(batch.size());
+        for (Transaction t : batch) {
+            Key key = new Key(t);
+            Integer copies = stored.get(key);
+            if (copies == null) {
+                fresh.add(t);
+            } else {
+                duplicates[0]++;
+                if (copies == 1) {
+                    stored.remove(key);
+                } else {
+                    stored.put(key, copies - 1);
+                }
+            }
+        }
+        return fresh;
+    }
+
+    // Date, time, vendor and amount - what makes two rows the same transaction
+    private static class Key {
+        private final long epochDay;
+        private final int second;
+        private final String vendor; // case folded, so "Amazon" and "AMAZON" match
+        private final long cents;    // so -5.0 and -5.00 match
+        private final boolean partCent; // a stored amount from an older ledger that isn't whole cents
+
+        Key(Transaction t) {
+            epochDay = t.getDate().toEpochDay();
+            second = t.getTime().toSecondOfDay();
+            vendor = VendorDictionary.normalize(t.getVendor());
+            cents = t.getAmountCents();
+            // Imported amounts are whole cents, so a stored part-cent amount never matches one
+            partCent = t.getAmount().scale() > 2 && t.getAmount().stripTrailingZeros().scale() > 2;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return epochDay == other.epochDay && second == other.second && cents == other.cents
+                    && partCent == other.partCent && vendor.equals(other.vendor);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(epochDay, second, vendor, cents, partCent);
+        }
+    }
+}
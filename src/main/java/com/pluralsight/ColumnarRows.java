@@ -0,0 +1,187 @@
+package com.pluralsight;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+// Keeps the rows as one primitive array per field instead of one object per row:
+//   date   -> int epoch day          time   -> int second of day
+//   amount -> long cents + byte scale (so "8" and "8.00" are written back exactly as they were read);
+//             the rare amount that doesn't fit that (a scale past a byte) is kept as its BigDecimal instead
+//   vendor -> int spelling id from the VendorDictionary
+//   description -> offset and length into one shared UTF-8 byte arena
+// About 30 bytes per row plus the description text, against 200+ bytes spread over six or more
+// objects for a Transaction. Transactions are only built when a row is actually read.
+// Snapshots share the column arrays: rows are only written in place past the end, anything else copies.
+public class ColumnarRows implements LedgerRows {
+
+    private static final int MAX_ARENA = Integer.MAX_VALUE - 8; // largest array the JVM will hand out
+    private static final byte EXACT = Byte.MIN_VALUE;           // scale marking a row whose amount is in exact[]
+
+    private final VendorDictionary vendors;
+    private int size;
+    private int[] epochDays = new int[16];
+    private int[] seconds = new int[16];
+    private long[] cents = new long[16];
+    private byte[] scales = new byte[16];
+    private BigDecimal[] exact;                 // amounts that cents + scale can't hold; null until there is one
+    private int[] vendorIds = new int[16];
+    private long[] descriptions = new long[16]; // arena offset in the high 32 bits, length in the low 32
+    private byte[] arena = new byte[1024];
+    private int arenaSize;
+    private final boolean readOnly;
+
+    public ColumnarRows(VendorDictionary vendors) {
+        this.vendors = vendors;
+        this.readOnly = false;
+    }
+
+    // Read-only copy sharing the other rows' arrays (see snapshot())
+    private ColumnarRows(ColumnarRows other) {
+        vendors = other.vendors;
+        size = other.size;
+        epochDays = other.epochDays;
+        seconds = other.seconds;
+        cents = other.cents;
+        scales = other.scales;
+        exact = other.exact;
+        vendorIds = other.vendorIds;
+        descriptions = other.descriptions;
+        arena = other.arena;
+        arenaSize = other.arenaSize;
+        readOnly = true;
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public int epochDay(int position) { return epochDays[check(position)]; }
+
+    @Override
+    public int secondOfDay(int position) { return seconds[check(position)]; }
+
+    @Override
+    public long amountCents(int position) { return cents[check(position)]; }
+
+    // BUILD A TRANSACTION FOR ONE ROW____________
+    @Override
+    public Transaction get(int position) {
+        check(position);
+        long description = descriptions[position];
+        return new Transaction(
+                LocalDate.ofEpochDay(epochDays[position]),
+                LocalTime.ofSecondOfDay(seconds[position]),
+                new String(arena, (int) (description >>> 32), (int) description, StandardCharsets.UTF_8),
+                vendors.spelling(vendorIds[position]),
+                scales[position] == EXACT
+                        ? exact[position]
+                        : BigDecimal.valueOf(cents[position], 2).setScale(scales[position]) // exact: cents came from this amount
+        );
+    }
+
+    // INSERT A ROW_______________________________
+    @Override
+    public void insert(int position, Transaction t) {
+        if (readOnly) {
+            throw new UnsupportedOperationException("snapshot rows are read-only");
+        }
+        if (position < 0 || position > size) {
+            throw new IndexOutOfBoundsException(position);
+        }
+        boolean fits = fitsColumns(t);
+        long description = store(t.getDescription());
+
+        if (!fits && exact == null) {
+            exact = new BigDecimal[epochDays.length];
+        }
+        if (position < size || size == epochDays.length) {
+            // Copy every column with a gap at position - snapshots may still be reading the old arrays
+            copyWithGap(position, size == epochDays.length ? size * 2 : epochDays.length);
+        }
+
+        epochDays[position] = (int) t.getDate().toEpochDay();
+        seconds[position] = t.getTime().toSecondOfDay();
+        cents[position] = t.getAmountCents();
+        scales[position] = fits ? (byte) t.getAmount().scale() : EXACT;
+        if (exact != null) {
+            exact[position] = fits ? null : t.getAmount();
+        }
+        vendorIds[position] = vendors.spellingIdOf(t.getVendor());
+        descriptions[position] = description;
+        size++;
+    }
+
+    // True when cents and a byte scale give back exactly t's amount
+    private static boolean fitsColumns(Transaction t) {
+        BigDecimal amount = t.getAmount();
+        int scale = amount.scale();
+        return scale > EXACT && scale <= Byte.MAX_VALUE
+                && (scale <= 2 || BigDecimal.valueOf(t.getAmountCents(), 2).compareTo(amount) == 0);
+    }
+
+    // Copies the description into the arena and returns its packed offset and length
+    private long store(String description) {
+        byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+        // Growing copies the arena; bytes past arenaSize are unused by any snapshot, so appending in place is safe
+        if (arenaSize + (long) bytes.length > arena.length) {
+            long needed = arenaSize + (long) bytes.length;
+            if (needed > MAX_ARENA) {
+                throw new IllegalStateException("description storage is full");
+            }
+            arena = Arrays.copyOf(arena, (int) Math.min(MAX_ARENA, Math.max(needed, arena.length * 2L)));
+        }
+        System.arraycopy(bytes, 0, arena, arenaSize, bytes.length);
+        long packed = ((long) arenaSize << 32) | bytes.length;
+        arenaSize += bytes.length;
+        return packed;
+    }
+
+    private void copyWithGap(int position, int capacity) {
+        epochDays = withGap(epochDays, new int[capacity], position);
+        seconds = withGap(seconds, new int[capacity], position);
+        cents = withGap(cents, new long[capacity], position);
+        scales = withGap(scales, new byte[capacity], position);
+        if (exact != null) {
+            exact = withGap(exact, new BigDecimal[capacity], position);
+        }
+        vendorIds = withGap(vendorIds, new int[capacity], position);
+        descriptions = withGap(descriptions, new long[capacity], position);
+    }
+
+    // Copies the first size entries of column into copy, leaving copy[position] free
+    private <T> T withGap(T column, T copy, int position) {
+        System.arraycopy(column, 0, copy, 0, position);
+        System.arraycopy(column, position, copy, position + 1, size - position);
+        return copy;
+    }
+
+    private int check(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException(position);
+        }
+        return position;
+    }
+
+    @Override
+    public void clear() {
+        // Fresh arrays rather than reusing these ones, which snapshots may still be reading
+        size = 0;
+        epochDays = new int[16];
+        seconds = new int[16];
+        cents = new long[16];
+        scales = new byte[16];
+        exact = null;
+        vendorIds = new int[16];
+        descriptions = new long[16];
+        arena = new byte[1024];
+        arenaSize = 0;
+    }
+
+    @Override
+    public LedgerRows snapshot() {
+        return new ColumnarRows(this);
+    }
+}
@@ -0,0 +1,196 @@
+package com.pluralsight;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Just enough JSON for LedgerServer, so the app keeps running without any libraries:
+// writing transactions, totals and pages, and reading the flat {"name": value} objects clients post.
+public class LedgerJson {
+
+    // WRITING___________________________________
+    public static StringBuilder appendTransaction(StringBuilder json, Transaction t) {
+        json.append("{\"date\":\"");
+        TransactionCodec.appendDate(json, t.getDate());
+        json.append("\",\"time\":\"");
+        TransactionCodec.appendTime(json, t.getTime());
+        json.append("\",\"description\":");
+        appendString(json, t.getDescription());
+        json.append(",\"vendor\":");
+        appendString(json, t.getVendor());
+        json.append(",\"amount\":").append(t.getAmount().toPlainString()); // exact, as it is in the CSV
+        return json.append('}');
+    }
+
+    public static StringBuilder appendTotals(StringBuilder json, Rollups.Totals totals) {
+        return json.append("{\"count\":").append(totals.getCount())
+                .append(",\"deposits\":").append(totals.getDeposits().toPlainString())
+                .append(",\"payments\":").append(totals.getPayments().toPlainString())
+                .append(",\"net\":").append(totals.getNet().toPlainString())
+                .append('}');
+    }
+
+    // One page of a list: {"total":n,"offset":o,"limit":l,"transactions":[...]}, plus totals when given.
+    // Only the rows on the page are read, so a page of a million-row ledger costs the same as a page of ten.
+    public static String page(List<Transaction> list, int offset, int limit, Rollups.Totals totals) {
+        int from = Math.min(offset, list.size());
+        int to = (int) Math.min(list.size(), (long) from + limit);
+        StringBuilder json = new StringBuilder(128 + (to - from) * 128);
+        json.append("{\"total\":").append(list.size())
+                .append(",\"offset\":").append(offset)
+                .append(",\"limit\":").append(limit);
+        if (totals != null) {
+            json.append(",\"totals\":");
+            appendTotals(json, totals);
+        }
+        json.append(",\"transactions\":[");
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                json.append(',');
+            }
+            appendTransaction(json, list.get(i));
+        }
+        return json.append("]}").toString();
+    }
+
+    public static String error(String message) {
+        return appendString(new StringBuilder("{\"error\":"), message).append('}').toString();
+    }
+
+    public static StringBuilder appendString(StringBuilder json, String text) {
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c)); // control characters
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+
+    // READING___________________________________
+    // Reads one flat object of strings, numbers, booleans and nulls into name -> text.
+    // Numbers are kept as their text so amounts reach BigDecimal exactly. Nested objects and arrays are rejected.
+    public static Map<String, String> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, String> fields = new HashMap<>();
+        parser.skipSpace();
+        parser.expect('{');
+        parser.skipSpace();
+        if (!parser.take('}')) {
+            do {
+                parser.skipSpace();
+                String name = parser.string();
+                parser.skipSpace();
+                parser.expect(':');
+                parser.skipSpace();
+                fields.put(name, parser.value());
+                parser.skipSpace();
+            } while (parser.take(','));
+            parser.expect('}');
+        }
+        parser.skipSpace();
+        if (!parser.atEnd()) {
+            throw new IllegalArgumentException("unexpected text after the JSON object");
+        }
+        return fields;
+    }
+
+    private static class Parser {
+        private final String text;
+        private int at;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        boolean atEnd() { return at >= text.length(); }
+
+        void skipSpace() {
+            while (!atEnd() && Character.isWhitespace(text.charAt(at))) {
+                at++;
+            }
+        }
+
+        boolean take(char c) {
+            if (!atEnd() && text.charAt(at) == c) {
+                at++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!take(c)) {
+                throw new IllegalArgumentException("expected '" + c + "' at character " + at);
+            }
+        }
+
+        // A string, number, true, false or null - returned as text (null for null)
+        String value() {
+            if (atEnd()) {
+                throw new IllegalArgumentException("missing value at character " + at);
+            }
+            char c = text.charAt(at);
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                throw new IllegalArgumentException("nested objects and arrays are not supported");
+            }
+            int start = at;
+            while (!atEnd() && ",}".indexOf(text.charAt(at)) < 0 && !Character.isWhitespace(text.charAt(at))) {
+                at++;
+            }
+            String literal = text.substring(start, at);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.isEmpty()) {
+                throw new IllegalArgumentException("missing value at character " + start);
+            }
+            return literal;
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (atEnd()) {
+                    throw new IllegalArgumentException("unterminated string");
+                }
+                char c = text.charAt(at++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (atEnd()) {
+                    throw new IllegalArgumentException("unterminated string");
+                }
+                char escaped = text.charAt(at++);
+                switch (escaped) {
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'u':
+                        if (at + 4 > text.length()) {
+                            throw new IllegalArgumentException("bad \\u escape");
+                        }
+                        value.append((char) Integer.parseInt(text.substring(at, at + 4), 16));
+                        at += 4;
+                        break;
+                    default: value.append(escaped); // \" \\ \/
+                }
+            }
+        }
+    }
+}
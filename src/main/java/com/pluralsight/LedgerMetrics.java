@@ -0,0 +1,236 @@
+package com.pluralsight;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import jdk.jfr.Category;//JDK Flight Recorder events, free unless a recording is running
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Always-on performance counters for the whole process: how often each ledger operation ran, how long it
+// took (a LatencyHistogram, so p50/p99 as well as the mean), how many rows it had to look at against how many
+// it gave back, and how many bytes went to disk. Everything is LongAdders and lock-free histograms, so the
+// cost per call is two nanoTime reads, a few uncontended adds and one small Span (which the JIT can usually
+// keep off the heap, since it never leaves the calling method).
+//
+// While a Flight Recorder recording has them enabled, operations also emit a JDK Flight Recorder event
+// (com.pluralsight.Load / Save / Query) with the same numbers, so a recording shows ledger work next to GC
+// and I/O. With no such recording no event object is created at all:
+//   java -XX:StartFlightRecording=filename=ledger.jfr -jar ...   then   jfr print --events com.pluralsight.* ledger.jfr
+//
+// Typical use:
+//   LedgerMetrics.Span span = LedgerMetrics.GET_ALL.start();
+//   ...
+//   span.end(rowsScanned, rowsReturned);
+public class LedgerMetrics {
+
+    private static final Map<String, Operation> OPERATIONS = new ConcurrentHashMap<>();
+
+    // OPERATIONS_________________________________
+    public static final Operation LOAD = operation("load", LoadEvent.class, LoadEvent::new);
+    public static final Operation SAVE = operation("save", SaveEvent.class, SaveEvent::new);
+    public static final Operation IMPORT = operation("import", SaveEvent.class, SaveEvent::new);
+    public static final Operation GET_ALL = operation("getAll");
+    public static final Operation GET_DEPOSITS = operation("getDeposits");
+    public static final Operation GET_PAYMENTS = operation("getPayments");
+    public static final Operation GET_BY_VENDOR = operation("getByVendor");
+    public static final Operation GET_BY_DATE_RANGE = operation("getByDateRange");
+    public static final Operation GET_TOTALS = operation("getTotals");
+    public static final Operation SEARCH = operation("search");
+    public static final Operation QUERY = operation("query");
+
+    // BYTES AND SYNCS____________________________
+    public static final LongAdder CSV_BYTES_WRITTEN = new LongAdder();
+    public static final LongAdder WAL_BYTES_WRITTEN = new LongAdder();
+    public static final LongAdder SYNCS = new LongAdder();      // forces of the write-ahead log
+    public static final LongAdder CHECKPOINTS = new LongAdder(); // forces of the CSV that start a new log
+
+    // One kind of work, e.g. "getByVendor" or "report.month-to-date"
+    public static class Operation {
+        private final String name;
+        private final EventType eventType; // says whether a recording wants the events right now
+        private final Supplier<LedgerEvent> events;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rowsScanned = new LongAdder();
+        private final LongAdder rowsReturned = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        private Operation(String name, Class<? extends LedgerEvent> eventClass, Supplier<LedgerEvent> events) {
+            this.name = name;
+            this.eventType = EventType.getEventType(eventClass);
+            this.events = events;
+        }
+
+        public Span start() {
+            LedgerEvent event = null;
+            if (eventType.isEnabled()) {
+                event = events.get();
+                event.begin();
+            }
+            return new Span(this, event, System.nanoTime());
+        }
+
+        public String getName() { return name; }
+        public LatencyHistogram getLatency() { return latency; }
+        public long getRowsScanned() { return rowsScanned.sum(); }
+        public long getRowsReturned() { return rowsReturned.sum(); }
+        public long getBytes() { return bytes.sum(); }
+    }
+
+    // One timed call of an operation; end it exactly once
+    public static class Span {
+        private final Operation operation;
+        private final LedgerEvent event; // null unless a recording had the event enabled at start
+        private final long start;
+
+        private Span(Operation operation, LedgerEvent event, long start) {
+            this.operation = operation;
+            this.event = event;
+            this.start = start;
+        }
+
+        public void end(long rowsScanned, long rowsReturned) {
+            end(rowsScanned, rowsReturned, 0);
+        }
+
+        public void end(long rowsScanned, long rowsReturned, long bytes) {
+            operation.latency.record(System.nanoTime() - start);
+            operation.rowsScanned.add(rowsScanned);
+            operation.rowsReturned.add(rowsReturned);
+            if (bytes > 0) {
+                operation.bytes.add(bytes);
+            }
+            if (event == null) {
+                return;
+            }
+            event.end();
+            if (event.shouldCommit()) { // false if the call was under the recording's threshold
+                event.operation = operation.name;
+                event.rowsScanned = rowsScanned;
+                event.rowsReturned = rowsReturned;
+                event.bytes = bytes;
+                event.commit();
+            }
+        }
+    }
+
+    // REGISTRY___________________________________
+    // The operation called name, created the first time it is asked for (as a query)
+    public static Operation operation(String name) {
+        return operation(name, QueryEvent.class, QueryEvent::new);
+    }
+
+    private static Operation operation(String name, Class<? extends LedgerEvent> eventClass,
+                                       Supplier<LedgerEvent> events) {
+        return OPERATIONS.computeIfAbsent(name, n -> new Operation(n, eventClass, events));
+    }
+
+    // Operations that have run at least once, by name
+    public static List<Operation> operations() {
+        ArrayList<Operation> used = new ArrayList<>();
+        for (Operation operation : new TreeMap<>(OPERATIONS).values()) {
+            if (operation.latency.getCount() > 0) {
+                used.add(operation);
+            }
+        }
+        return used;
+    }
+
+    // DUMP_______________________________________
+    // Everything as one JSON object, for scripts and dashboards (GET /stats, or the Stats screen's file):
+    // {"operations":[{"name":..,"count":..,"meanNanos":..,"p50Nanos":..,"p99Nanos":..,"maxNanos":..,
+    //   "rowsScanned":..,"rowsReturned":..,"bytes":..}],"csvBytesWritten":..,"walBytesWritten":..,"syncs":..,"checkpoints":..}
+    public static String toJson() {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"operations\":[");
+        List<Operation> used = operations();
+        for (int i = 0; i < used.size(); i++) {
+            Operation operation = used.get(i);
+            LatencyHistogram latency = operation.latency;
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"name\":");
+            LedgerJson.appendString(json, operation.name);
+            json.append(",\"count\":").append(latency.getCount())
+                    .append(",\"meanNanos\":").append(latency.getMeanNanos())
+                    .append(",\"p50Nanos\":").append(latency.getPercentileNanos(50))
+                    .append(",\"p99Nanos\":").append(latency.getPercentileNanos(99))
+                    .append(",\"maxNanos\":").append(latency.getMaxNanos())
+                    .append(",\"rowsScanned\":").append(operation.getRowsScanned())
+                    .append(",\"rowsReturned\":").append(operation.getRowsReturned())
+                    .append(",\"bytes\":").append(operation.getBytes())
+                    .append('}');
+        }
+        json.append("],\"csvBytesWritten\":").append(CSV_BYTES_WRITTEN.sum())
+                .append(",\"walBytesWritten\":").append(WAL_BYTES_WRITTEN.sum())
+                .append(",\"syncs\":").append(SYNCS.sum())
+                .append(",\"checkpoints\":").append(CHECKPOINTS.sum())
+                .append('}');
+        return json.toString();
+    }
+
+    // A table for the Stats screen, times in milliseconds
+    public static String toTable() {
+        StringBuilder table = new StringBuilder();
+        String line = System.lineSeparator();
+        table.append(String.format("%-28s %8s %10s %10s %10s %10s %12s %12s", "Operation", "Calls",
+                "Mean ms", "p50 ms", "p99 ms", "Max ms", "Scanned", "Returned")).append(line);
+        for (Operation operation : operations()) {
+            LatencyHistogram latency = operation.latency;
+            table.append(String.format("%-28s %8d %10.3f %10.3f %10.3f %10.3f %12d %12d", operation.name,
+                    latency.getCount(), latency.getMeanNanos() / 1e6, latency.getPercentileNanos(50) / 1e6,
+                    latency.getPercentileNanos(99) / 1e6, latency.getMaxNanos() / 1e6,
+                    operation.getRowsScanned(), operation.getRowsReturned())).append(line);
+        }
+        table.append("CSV bytes written: ").append(CSV_BYTES_WRITTEN.sum())
+                .append("   WAL bytes written: ").append(WAL_BYTES_WRITTEN.sum())
+                .append("   Syncs: ").append(SYNCS.sum())
+                .append("   Checkpoints: ").append(CHECKPOINTS.sum()).append(line);
+        return table.toString();
+    }
+
+    // FLIGHT RECORDER EVENTS_____________________
+    @Category("Ledger")
+    abstract static class LedgerEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Rows Scanned")
+        @Description("Rows looked at to answer the call")
+        long rowsScanned;
+
+        @Label("Rows Returned")
+        long rowsReturned;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("com.pluralsight.Load")
+    @Label("Ledger Load")
+    @Description("Transactions read from the snapshot or CSV at startup")
+    static class LoadEvent extends LedgerEvent {
+    }
+
+    @Name("com.pluralsight.Save")
+    @Label("Ledger Save")
+    @Description("A batch of transactions appended to the CSV")
+    static class SaveEvent extends LedgerEvent {
+    }
+
+    @Name("com.pluralsight.Query")
+    @Label("Ledger Query")
+    @Description("A read of the ledger or a report")
+    static class QueryEvent extends LedgerEvent {
+    }
+}
@@ -0,0 +1,478 @@
+package com.pluralsight;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Cold months of a partitioned ledger (see TransactionManager): one pipe-delimited file per month in
+// transactions.csv.parts/, e.g. 2023-04.csv, plus manifest.csv holding each month's date span, row count,
+// totals and file size. Month files never change once written (except when more rows are archived into
+// them), so they are only read when a query reaches back that far, and the loaded months are kept in an
+// LRU cache that drops the least recently used month once the estimated memory goes over the budget.
+// Totals for whole months come straight from the manifest without opening the file.
+// archive.pending, while it exists, records an archive whose rows the CSV may still hold (see archive()).
+public class LedgerPartitions {
+
+    private static final String MANIFEST = "manifest.csv";
+    private static final String MANIFEST_HEADER = "month|first|last|rows|deposits|payments|bytes";
+    private static final String PENDING = "archive.pending"; // see archive()
+    private static final long ROW_BYTES = 200; // rough memory per loaded row, for the cache budget
+
+    private final Path directory;
+    private final StorageLayout layout;
+    private final long budgetBytes;
+    private final TreeMap<YearMonth, Partition> manifest = new TreeMap<>();
+    private final LinkedHashMap<YearMonth, LedgerStore> cache = new LinkedHashMap<>(16, 0.75f, true); // access order
+    private long cachedBytes;
+    private PendingArchive pending; // an archive the CSV may still hold the rows of, or null
+
+    // One month file as described by the manifest
+    public static class Partition {
+        private final YearMonth month;
+        private final LocalDate first; // oldest row's date
+        private final LocalDate last;  // newest row's date
+        private final Rollups.Totals totals;
+        private final long bytes;      // file size when the entry was written, to spot a stale manifest
+
+        Partition(YearMonth month, LocalDate first, LocalDate last, Rollups.Totals totals, long bytes) {
+            this.month = month;
+            this.first = first;
+            this.last = last;
+            this.totals = totals;
+            this.bytes = bytes;
+        }
+
+        public YearMonth getMonth() { return month; }
+        public LocalDate getFirst() { return first; }
+        public LocalDate getLast() { return last; }
+        public long getRows() { return totals.getCount(); }
+        public Rollups.Totals getTotals() { return totals.copy(); }
+    }
+
+    // An archive committed to the month files, recorded with the CSV as it was before its rows were removed
+    public static class PendingArchive {
+        private final LocalDate before; // every row dated before this was archived
+        private final long csvSize;
+        private final long csvModified;
+        private final List<YearMonth> months; // the month files it wrote
+
+        PendingArchive(LocalDate before, long csvSize, long csvModified, List<YearMonth> months) {
+            this.before = before;
+            this.csvSize = csvSize;
+            this.csvModified = csvModified;
+            this.months = months;
+        }
+
+        // before|csvSize|csvModified|month,month,...
+        static PendingArchive parse(String line) {
+            String[] parts = line.split("\\|");
+            ArrayList<YearMonth> months = new ArrayList<>();
+            for (String month : parts[3].split(",")) {
+                months.add(YearMonth.parse(month));
+            }
+            return new PendingArchive(LocalDate.parse(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]), months);
+        }
+
+        String toLine() {
+            StringBuilder line = new StringBuilder();
+            line.append(before).append('|').append(csvSize).append('|').append(csvModified).append('|');
+            for (int i = 0; i < months.size(); i++) {
+                line.append(i > 0 ? "," : "").append(months.get(i));
+            }
+            return line.toString();
+        }
+
+        public LocalDate getBefore() { return before; }
+
+        // True while csv is still the file the rows were archived from, so its rows dated before getBefore()
+        // are already in the month files
+        public boolean stillIn(Path csv) throws IOException {
+            return Files.size(csv) == csvSize && Files.getLastModifiedTime(csv).toMillis() == csvModified;
+        }
+    }
+
+    public static Path pathFor(Path csv) {
+        return csv.resolveSibling(csv.getFileName() + ".parts");
+    }
+
+    //CONSTRUCTOR______________
+    // Reads the manifest; month files it doesn't describe (or describes at a different size) are read once
+    // to rebuild their entry, so a crash between writing a month and writing the manifest heals itself
+    public LedgerPartitions(Path directory, StorageLayout layout, long budgetBytes) throws IOException {
+        this.directory = directory;
+        this.layout = layout;
+        this.budgetBytes = budgetBytes;
+        Files.createDirectories(directory);
+
+        // Finish an archive that crashed after its commit point, or throw away one that crashed before it
+        Path pendingFile = directory.resolve(PENDING);
+        if (Files.exists(pendingFile)) {
+            pending = PendingArchive.parse(Files.readAllLines(pendingFile).get(0));
+            moveStagedMonths(pending.months);
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.csv.new")) {
+            for (Path staged : files) {
+                Files.delete(staged); // staged by an archive that never reached its commit point
+            }
+        }
+
+        Path manifestFile = directory.resolve(MANIFEST);
+        HashMap<YearMonth, Partition> listed = new HashMap<>();
+        if (Files.exists(manifestFile)) {
+            for (String line : Files.readAllLines(manifestFile)) {
+                String[] parts = line.split("\\|");
+                if (parts.length != 7 || line.startsWith("month|")) {
+                    continue;
+                }
+                try {
+                    Rollups.Totals totals = new Rollups.Totals(Long.parseLong(parts[3]),
+                            new BigDecimal(parts[4]).movePointRight(2).longValueExact(),
+                            new BigDecimal(parts[5]).movePointRight(2).longValueExact());
+                    listed.put(YearMonth.parse(parts[0]), new Partition(YearMonth.parse(parts[0]),
+                            LocalDate.parse(parts[1]), LocalDate.parse(parts[2]), totals, Long.parseLong(parts[6])));
+                } catch (RuntimeException e) {
+                    System.out.println("Ignoring manifest line: " + line);
+                }
+            }
+        }
+
+        boolean changed = false;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "[0-9][0-9][0-9][0-9]-[0-9][0-9].csv")) {
+            for (Path file : files) {
+                YearMonth month = YearMonth.parse(file.getFileName().toString().substring(0, 7));
+                Partition entry = listed.get(month);
+                if (entry == null || entry.bytes != Files.size(file)) {
+                    entry = describe(month, read(month).oldestFirst());
+                    changed = true;
+                }
+                manifest.put(month, entry);
+            }
+        }
+        if (changed || manifest.size() != listed.size()) {
+            writeManifest();
+        }
+    }
+
+    // ARCHIVE ROWS____________________________
+    // Moves rows (all dated before `before`) into their month files, added to what is already there.
+    // Crash-safe in three steps:
+    //   1. each changed month is written in full to YYYY-MM.csv.new
+    //   2. archive.pending is written, naming `before`, the CSV's size and modified time and the staged
+    //      months - the commit point
+    //   3. those .new files are renamed over the month files and the manifest is written
+    // The caller then rewrites the CSV without the rows and calls finishArchive(). A crash before step 2
+    // leaves only .new files, which the next start deletes; after it, the next start finishes step 3, and
+    // getPendingArchive() tells the caller whether its CSV still holds the rows (same size and modified time)
+    // or was already rewritten. Rows are never matched by content, so identical transactions all survive.
+    public synchronized void archive(List<Transaction> rows, LocalDate before, Path csv) throws IOException {
+        TreeMap<YearMonth, List<Transaction>> byMonth = new TreeMap<>();
+        for (Transaction t : rows) {
+            byMonth.computeIfAbsent(YearMonth.from(t.getDate()), m -> new ArrayList<>()).add(t);
+        }
+
+        TreeMap<YearMonth, List<Transaction>> staged = new TreeMap<>();
+        for (Map.Entry<YearMonth, List<Transaction>> entry : byMonth.entrySet()) {
+            YearMonth month = entry.getKey();
+            ArrayList<Transaction> merged = new ArrayList<>();
+            if (manifest.containsKey(month)) {
+                merged.addAll(read(month).oldestFirst());
+            }
+            merged.addAll(entry.getValue());
+            merged.sort(LedgerStore.CHRONOLOGICAL);
+            TransactionJournal.rewrite(stagedFileFor(month), TransactionManager.HEADER, merged);
+            staged.put(month, merged);
+        }
+
+        pending = new PendingArchive(before, Files.size(csv), Files.getLastModifiedTime(csv).toMillis(),
+                new ArrayList<>(staged.keySet()));
+        writeAtomically(directory.resolve(PENDING), List.of(pending.toLine())); // the commit point
+        moveStagedMonths(pending.months);
+        for (Map.Entry<YearMonth, List<Transaction>> entry : staged.entrySet()) {
+            YearMonth month = entry.getKey();
+            manifest.put(month, describe(month, entry.getValue()));
+            LedgerStore cached = cache.remove(month);
+            if (cached != null) {
+                cachedBytes -= cached.size() * ROW_BYTES;
+            }
+        }
+        writeManifest();
+    }
+
+    // The CSV no longer holds the archived rows
+    public synchronized void finishArchive() throws IOException {
+        Files.deleteIfExists(directory.resolve(PENDING));
+        pending = null;
+    }
+
+    // The archive whose CSV rewrite may not have happened yet, or null
+    public synchronized PendingArchive getPendingArchive() {
+        return pending;
+    }
+
+    // Renames the staged .new files of months over the month files (those already moved are skipped)
+    private void moveStagedMonths(List<YearMonth> months) throws IOException {
+        for (YearMonth month : months) {
+            if (Files.exists(stagedFileFor(month))) {
+                Files.move(stagedFileFor(month), fileFor(month), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+    }
+
+    // TOTALS_________________________________
+    // Totals for start through end (inclusive, null for an open end). Months wholly inside the range come from
+    // the manifest; only a month cut by start or end is opened.
+    public synchronized Rollups.Totals totals(LocalDate start, LocalDate end) {
+        Rollups.Totals totals = new Rollups.Totals();
+        for (Partition partition : overlapping(start, end)) {
+            boolean whole = (start == null || !start.isAfter(partition.first))
+                    && (end == null || !end.isBefore(partition.last));
+            if (whole) {
+                totals.add(partition.totals);
+            } else {
+                LocalDate from = start == null || start.isBefore(partition.first) ? partition.first : start;
+                LocalDate to = end == null || end.isAfter(partition.last) ? partition.last : end;
+                totals.add(open(partition.month).rollups().between(from, to));
+            }
+        }
+        return totals;
+    }
+
+    // ROWS___________________________________
+    // Rows dated start through end (inclusive, null for an open end), newest first
+    public List<Transaction> newestFirst(LocalDate start, LocalDate end) {
+        LocalDate from = start == null ? LocalDate.MIN : start;
+        LocalDate to = end == null ? LocalDate.MAX.minusDays(1) : end;
+        return collect(start, end, true, store -> store.newestFirst(from, to));
+    }
+
+    // Rows dated start through end (inclusive, null for an open end), oldest first
+    public List<Transaction> oldestFirst(LocalDate start, LocalDate end) {
+        return collect(start, end, false, store -> {
+            List<Transaction> rows = store.oldestFirst();
+            int from = start == null ? 0 : store.firstOnOrAfter(start);
+            int to = end == null ? rows.size() : Math.max(from, store.firstOnOrAfter(end.plusDays(1)));
+            return rows.subList(from, Math.min(to, rows.size()));
+        });
+    }
+
+    // Positive (sign > 0) or negative (sign < 0) amounts, oldest first
+    public List<Transaction> oldestFirstWithSign(int sign) {
+        return collect(null, null, false, store -> store.oldestFirstWithSign(sign));
+    }
+
+    // One vendor's rows (ignoring case), newest first
+    public List<Transaction> newestFirstForVendor(String vendor) {
+        return collect(null, null, true, store -> store.newestFirstForVendor(vendor));
+    }
+
+    // Rows matching a text search (see TextIndex), newest first - every month is opened
+    public List<Transaction> search(String query) {
+        return collect(null, null, true, store -> store.search(query));
+    }
+
+    // Totals for one vendor (ignoring case) - the manifest has no vendor totals, so every month is opened
+    public Rollups.Totals vendorTotals(String vendor) {
+        Rollups.Totals totals = new Rollups.Totals();
+        for (Partition partition : overlapping(null, null)) {
+            LedgerStore store = open(partition.month);
+            totals.add(store.rollups().vendor(store.vendors().find(vendor)));
+        }
+        return totals;
+    }
+
+    // Runs rowsOf over each overlapping month (newest month first when newestFirst) and joins the results
+    // into one view. Only each month's row count is kept: the months are opened one at a time to count them,
+    // and a row is read by opening its month again through the cache. A view therefore holds at most one
+    // month beyond the cache budget, however many months it spans; reading it in order reopens each
+    // evicted month once.
+    private List<Transaction> collect(LocalDate start, LocalDate end, boolean newestFirst,
+                                      Function<LedgerStore, List<Transaction>> rowsOf) {
+        List<Partition> months = overlapping(start, end);
+        ArrayList<YearMonth> parts = new ArrayList<>(months.size());
+        ArrayList<Integer> sizes = new ArrayList<>(months.size());
+        for (int i = 0; i < months.size(); i++) {
+            Partition partition = months.get(newestFirst ? months.size() - 1 - i : i);
+            int size = rowsOf.apply(open(partition.month)).size();
+            if (size > 0) {
+                parts.add(partition.month);
+                sizes.add(size);
+            }
+        }
+        return new MonthsView(parts, sizes, rowsOf);
+    }
+
+    // Several months' lists read one after the other; row i is found by binary search over where each
+    // month starts. The month last read is kept, so reading in order opens each month once.
+    private class MonthsView extends AbstractList<Transaction> implements RandomAccess {
+        private final List<YearMonth> months;
+        private final int[] starts; // index of each month's first row, plus the total size at the end
+        private final Function<LedgerStore, List<Transaction>> rowsOf;
+        private volatile Slice last; // replaced, never changed, so readers on other threads see a whole one
+
+        MonthsView(List<YearMonth> months, List<Integer> sizes, Function<LedgerStore, List<Transaction>> rowsOf) {
+            this.months = months;
+            this.rowsOf = rowsOf;
+            starts = new int[months.size() + 1];
+            for (int i = 0; i < months.size(); i++) {
+                starts[i + 1] = starts[i] + sizes.get(i);
+            }
+        }
+
+        @Override
+        public Transaction get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            int part = Arrays.binarySearch(starts, index); // months are never empty, so starts only go up
+            part = part >= 0 ? part : -part - 2;
+            Slice slice = last;
+            if (slice == null || slice.part != part) {
+                slice = new Slice(part, rowsOf.apply(open(months.get(part))));
+                last = slice;
+            }
+            return slice.rows.get(index - starts[part]);
+        }
+
+        @Override
+        public int size() {
+            return starts[starts.length - 1];
+        }
+    }
+
+    // One month's rows within a MonthsView
+    private static class Slice {
+        final int part;
+        final List<Transaction> rows;
+
+        Slice(int part, List<Transaction> rows) {
+            this.part = part;
+            this.rows = rows;
+        }
+    }
+
+    // The stores of the months overlapping start through end (null for an open end), newest month first when
+    // newestFirst. Each month is opened through the cache only when the stream reaches it.
+    Stream<LedgerStore> monthStores(LocalDate start, LocalDate end, boolean newestFirst) {
+        List<Partition> months = overlapping(start, end);
+        return IntStream.range(0, months.size())
+                .mapToObj(i -> open(months.get(newestFirst ? months.size() - 1 - i : i).month));
+    }
+
+    // Months whose rows fall anywhere in start through end, oldest month first
+    public synchronized List<Partition> overlapping(LocalDate start, LocalDate end) {
+        ArrayList<Partition> months = new ArrayList<>();
+        for (Partition partition : manifest.values()) {
+            if ((start == null || !partition.last.isBefore(start)) && (end == null || !partition.first.isAfter(end))) {
+                months.add(partition);
+            }
+        }
+        return months;
+    }
+
+    public synchronized long rowCount() {
+        long rows = 0;
+        for (Partition partition : manifest.values()) {
+            rows += partition.getRows();
+        }
+        return rows;
+    }
+
+    // LRU CACHE______________________________
+    // The month's rows, loaded on first use. Loading one month can push older ones out of the cache;
+    // views already handed out (see collect) open an evicted month again when they next read it.
+    private synchronized LedgerStore open(YearMonth month) {
+        LedgerStore store = cache.get(month);
+        if (store != null) {
+            return store;
+        }
+        try {
+            store = read(month);
+        } catch (IOException e) {
+            System.out.println("Error loading " + fileFor(month).getFileName() + ": " + e.getMessage());
+            return new LedgerStore(layout);
+        }
+        cache.put(month, store);
+        cachedBytes += store.size() * ROW_BYTES;
+        Iterator<Map.Entry<YearMonth, LedgerStore>> eldest = cache.entrySet().iterator();
+        while (cachedBytes > budgetBytes && cache.size() > 1) {
+            LedgerStore evicted = eldest.next().getValue();
+            eldest.remove();
+            cachedBytes -= evicted.size() * ROW_BYTES;
+        }
+        return store;
+    }
+
+    private LedgerStore read(YearMonth month) throws IOException {
+        LedgerStore store = new LedgerStore(layout);
+        TransactionLoader.Result result = TransactionLoader.load(fileFor(month), store.vendors());
+        if (!result.getErrors().isEmpty()) {
+            System.out.println("Skipping " + result.getErrors().size() + " malformed lines in " + fileFor(month).getFileName());
+        }
+        store.addAll(result.getTransactions());
+        return store;
+    }
+
+    // MANIFEST_______________________________
+    private Partition describe(YearMonth month, List<Transaction> rows) throws IOException {
+        Rollups.Totals totals = new Rollups.Totals();
+        LocalDate first = month.atEndOfMonth();
+        LocalDate last = month.atDay(1);
+        for (Transaction t : rows) {
+            totals.add(t.getAmountCents());
+            first = t.getDate().isBefore(first) ? t.getDate() : first;
+            last = t.getDate().isAfter(last) ? t.getDate() : last;
+        }
+        return new Partition(month, first, last, totals, Files.size(fileFor(month)));
+    }
+
+    private void writeManifest() throws IOException {
+        ArrayList<String> lines = new ArrayList<>(manifest.size() + 1);
+        lines.add(MANIFEST_HEADER);
+        for (Partition p : manifest.values()) {
+            lines.add(p.month + "|" + p.first + "|" + p.last + "|" + p.getRows() + "|"
+                    + p.totals.getDeposits() + "|" + p.totals.getPayments() + "|" + p.bytes);
+        }
+        writeAtomically(directory.resolve(MANIFEST), lines);
+    }
+
+    // Writes lines to a temp file, forces it to disk and renames it over file
+    private static void writeAtomically(Path file, List<String> lines) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+        try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            tempChannel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path fileFor(YearMonth month) {
+        return directory.resolve(month + ".csv");
+    }
+
+    private Path stagedFileFor(YearMonth month) {
+        return directory.resolve(month + ".csv.new");
+    }
+}
@@ -0,0 +1,50 @@
+package com.pluralsight;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+
+// Prints transaction tables through one large buffer instead of a println per row.
+// Rows are read straight from the (read-only view) list, formatted into one reused StringBuilder,
+// and reach the console in 64 KB writes - a million-row ledger is a few thousand writes, not a million.
+// Nothing is copied: printing a page only reads the rows on that page.
+public class LedgerPrinter {
+
+    public static final String HEADER = "Date         Time       Description               Vendor          Amount";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer out;
+    private final StringBuilder row = new StringBuilder(96); // reused for every row
+
+    public LedgerPrinter(PrintStream stream) {
+        this.out = new BufferedWriter(new OutputStreamWriter(stream), BUFFER_SIZE);
+    }
+
+    // PRINT______________________________________
+    // Prints the header and rows [offset, offset + count) of list, clipped to its size; returns the rows printed
+    public synchronized int print(List<Transaction> list, int offset, int count) {
+        int from = Math.max(0, Math.min(offset, list.size()));
+        int to = (int) Math.min(list.size(), (long) from + count);
+        try {
+            out.write(HEADER);
+            out.write(System.lineSeparator());
+            for (int i = from; i < to; i++) {
+                row.setLength(0);
+                list.get(i).appendDisplay(row).append(System.lineSeparator());
+                out.append(row);
+            }
+            out.flush(); // prompts are printed straight to System.out, so finish the table first
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return to - from;
+    }
+
+    public int printAll(List<Transaction> list) {
+        return print(list, 0, list.size());
+    }
+}
@@ -0,0 +1,356 @@
+package com.pluralsight;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Fluent, lazy query over the ledger, e.g. "Amazon payments in the previous month":
+//   manager.query().vendor("Amazon").payments().between(start, end).list()
+// Conditions only describe the query; nothing is read until a terminal (stream, list, count, totals...).
+// The cheapest path through the store is then picked: the vendor's postings when a vendor is given,
+// narrowed to the date range by binary search, otherwise the date range of the sorted rows, otherwise
+// everything. Sign and amount conditions are checked on the stored cents, so only rows that pass them
+// (and the description condition, which needs the text) are ever turned into Transactions.
+// Each terminal reads the store as it is when the terminal starts and is unaffected by later adds.
+// On a partitioned ledger a query that reaches back before the hot months runs the same way on each
+// overlapping month's own store (opened one at a time, as the results get that far) and on the live store,
+// and the two ordered results are merged - backdated rows in memory can fall among a month's rows. Those
+// queries run sequentially even when parallel() is asked for.
+public class LedgerQuery {
+
+    private final LedgerStore store;
+    private final LedgerPartitions partitions; // null unless partitioned
+    private final LocalDate hotStart;          // rows before this date are in partitions
+    private LocalDate start;            // inclusive, null = no lower bound
+    private LocalDate end;              // inclusive, null = no upper bound
+    private String vendor;              // ignoring case, null = any
+    private int sign;                   // 1 deposits, -1 payments, 0 either
+    private long minCents = Long.MIN_VALUE;
+    private long maxCents = Long.MAX_VALUE;
+    private String text;                // description contains this, ignoring case
+    private boolean newestFirst = true; // same order as the ledger screen
+    private Comparator<Transaction> order;
+    private long limit = Long.MAX_VALUE;
+    private boolean parallel;
+    private long scanned;               // candidates on the access paths picked by the last terminal, for LedgerMetrics
+
+    LedgerQuery(LedgerStore store) {
+        this(store, null, null);
+    }
+
+    LedgerQuery(LedgerStore store, LedgerPartitions partitions, LocalDate hotStart) {
+        this.store = store;
+        this.partitions = partitions;
+        this.hotStart = hotStart;
+    }
+
+    // CONDITIONS_________________________________
+    // start and end are inclusive; either may be null for an open end
+    public LedgerQuery between(LocalDate start, LocalDate end) {
+        this.start = start;
+        this.end = end;
+        return this;
+    }
+
+    public LedgerQuery vendor(String vendor) {
+        this.vendor = vendor;
+        return this;
+    }
+
+    public LedgerQuery deposits() {
+        sign = 1;
+        return this;
+    }
+
+    public LedgerQuery payments() {
+        sign = -1;
+        return this;
+    }
+
+    // Signed amounts from min through max (inclusive); either may be null for no bound
+    public LedgerQuery amountBetween(BigDecimal min, BigDecimal max) {
+        minCents = min == null ? Long.MIN_VALUE : min.movePointRight(2).setScale(0, RoundingMode.CEILING).longValueExact();
+        maxCents = max == null ? Long.MAX_VALUE : max.movePointRight(2).setScale(0, RoundingMode.FLOOR).longValueExact();
+        return this;
+    }
+
+    public LedgerQuery descriptionContains(String text) {
+        this.text = text == null || text.isEmpty() ? null : text;
+        return this;
+    }
+
+    // ORDER, LIMIT, PARALLEL______________________
+    public LedgerQuery newestFirst() {
+        newestFirst = true;
+        order = null;
+        return this;
+    }
+
+    public LedgerQuery oldestFirst() {
+        newestFirst = false;
+        order = null;
+        return this;
+    }
+
+    // Any other order; the matches are sorted before the limit is applied
+    public LedgerQuery sortedBy(Comparator<Transaction> order) {
+        this.order = order;
+        return this;
+    }
+
+    public LedgerQuery limit(long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit cannot be negative");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    // Evaluates on the common fork-join pool; the results keep their order
+    public LedgerQuery parallel() {
+        parallel = true;
+        return this;
+    }
+
+    // TERMINALS__________________________________
+    public Stream<Transaction> stream() {
+        scanned = 0;
+        Stream<Transaction> matches;
+        if (reachesMonthFiles()) {
+            Stream<Transaction> cold = partitions.monthStores(start, end, newestFirst).flatMap(this::matchesIn);
+            matches = merge(matchesIn(store), cold);
+            if (order == null) {
+                matches = matches.limit(limit);
+            }
+        } else {
+            matches = matchesIn(store);
+        }
+        return order == null ? matches : matches.sorted(order).limit(limit);
+    }
+
+    // The matches in one store, in the query's order (limited unless sortedBy is to be applied first)
+    private Stream<Transaction> matchesIn(LedgerStore source) {
+        LedgerStore.View view = source.view();
+        return positions(source, view, order == null).mapToObj(view.rows::get);
+    }
+
+    public Iterator<Transaction> iterator() {
+        return stream().iterator();
+    }
+
+    public List<Transaction> list() {
+        LedgerMetrics.Span span = LedgerMetrics.QUERY.start();
+        List<Transaction> matches = stream().collect(Collectors.toList());
+        span.end(scanned, matches.size());
+        return matches;
+    }
+
+    public long count() {
+        return totals().getCount();
+    }
+
+    // Net of the matching amounts
+    public BigDecimal sum() {
+        return totals().getNet();
+    }
+
+    // Count, deposits, payments and net of the matches
+    public Rollups.Totals totals() {
+        LedgerMetrics.Span span = LedgerMetrics.QUERY.start();
+        scanned = 0;
+        Rollups.Totals totals = totalsOfMatches();
+        span.end(scanned, totals.getCount());
+        return totals;
+    }
+
+    private Rollups.Totals totalsOfMatches() {
+        if (onlyDates()) {
+            // Straight from the running day/month/year totals - no rows read at all.
+            // Cold months add their totals from the manifest.
+            Rollups.Totals totals = new Rollups.Totals();
+            if (partitions != null && (start == null || start.isBefore(hotStart))) {
+                totals.add(partitions.totals(start, end));
+            }
+            totals.add(store.rollups().between(start, end));
+            return totals;
+        }
+        if (limit != Long.MAX_VALUE && (order != null || reachesMonthFiles())) {
+            // Which rows the limit keeps depends on the order across all of them
+            return stream().collect(Rollups.Totals::new, (totals, t) -> totals.add(t.getAmountCents()), Rollups.Totals::add);
+        }
+        Rollups.Totals totals = new Rollups.Totals();
+        sources().forEach(source -> {
+            LedgerStore.View view = source.view();
+            totals.add(positions(source, view, true).collect(Rollups.Totals::new,
+                    (sum, position) -> sum.add(view.rows.amountCents(position)), Rollups.Totals::add));
+        });
+        return totals;
+    }
+
+    // Totals per vendor, in vendor name order (ignoring case)
+    public Map<String, Rollups.Totals> totalsByVendor() {
+        TreeMap<String, Rollups.Totals> byVendor = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        stream().sequential().forEach(t -> byVendor.computeIfAbsent(t.getVendor(), v -> new Rollups.Totals())
+                .add(t.getAmountCents()));
+        return byVendor;
+    }
+
+    // Totals per month, oldest month first - read from the stored dates and cents without building rows
+    public Map<YearMonth, Rollups.Totals> totalsByMonth() {
+        TreeMap<YearMonth, Rollups.Totals> byMonth = new TreeMap<>();
+        if (limit != Long.MAX_VALUE && (order != null || reachesMonthFiles())) {
+            stream().sequential().forEach(t -> byMonth.computeIfAbsent(YearMonth.from(t.getDate()), m -> new Rollups.Totals())
+                    .add(t.getAmountCents()));
+            return byMonth;
+        }
+        scanned = 0;
+        sources().forEach(source -> {
+            LedgerStore.View view = source.view();
+            positions(source, view, true).sequential().forEach(position -> byMonth
+                    .computeIfAbsent(YearMonth.from(LocalDate.ofEpochDay(view.rows.epochDay(position))), m -> new Rollups.Totals())
+                    .add(view.rows.amountCents(position)));
+        });
+        return byMonth;
+    }
+
+    // ACCESS PATH________________________________
+    // True for a partitioned ledger and a range that starts before the hot months
+    private boolean reachesMonthFiles() {
+        return partitions != null && (start == null || start.isBefore(hotStart));
+    }
+
+    // The stores holding rows in the range: the overlapping months' (opened one at a time) and the live one
+    private Stream<LedgerStore> sources() {
+        if (!reachesMonthFiles()) {
+            return Stream.of(store);
+        }
+        return Stream.concat(partitions.monthStores(start, end, false), Stream.of(store));
+    }
+
+    // Merges the live store's matches with the months' matches, both already in the query's order.
+    // On equal date and time a month's row comes first oldest-first (it was there first) and last newest-first.
+    private Stream<Transaction> merge(Stream<Transaction> hot, Stream<Transaction> cold) {
+        Comparator<Transaction> byDate = newestFirst ? LedgerStore.CHRONOLOGICAL.reversed() : LedgerStore.CHRONOLOGICAL;
+        Iterator<Transaction> hotRows = hot.iterator();
+        Iterator<Transaction> coldRows = cold.iterator();
+        Iterator<Transaction> merged = new Iterator<>() {
+            private Transaction nextHot = hotRows.hasNext() ? hotRows.next() : null;
+            private Transaction nextCold = coldRows.hasNext() ? coldRows.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return nextHot != null || nextCold != null;
+            }
+
+            @Override
+            public Transaction next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                boolean takeHot = nextCold == null || (nextHot != null && (newestFirst
+                        ? byDate.compare(nextHot, nextCold) <= 0
+                        : byDate.compare(nextHot, nextCold) < 0));
+                Transaction t;
+                if (takeHot) {
+                    t = nextHot;
+                    nextHot = hotRows.hasNext() ? hotRows.next() : null;
+                } else {
+                    t = nextCold;
+                    nextCold = coldRows.hasNext() ? coldRows.next() : null;
+                }
+                return t;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false);
+    }
+
+    // Store positions of the matches, in the query's order, limited when applyLimit is set
+    // Adds the candidates it walks to scanned
+    private IntStream positions(LedgerStore source, LedgerStore.View view, boolean applyLimit) {
+        LedgerRows rows = view.rows;
+        int from = start == null ? 0 : LedgerStore.firstOnOrAfter(rows, start);
+        int to = end == null ? rows.size() : Math.max(from, LedgerStore.firstOnOrAfter(rows, end.plusDays(1)));
+
+        IntStream candidates;
+        if (vendor != null) {
+            // The vendor's postings are sorted positions, so the date range is a slice of them too
+            int id = source.vendors().find(vendor);
+            if (id < 0 || id >= view.postings.length) {
+                return IntStream.empty();
+            }
+            int[] postings = view.postings[id];
+            int first = lowerBound(postings, view.postingCounts[id], from);
+            int last = lowerBound(postings, view.postingCounts[id], to);
+            scanned += last - first;
+            candidates = inOrder(first, last).map(i -> postings[i]);
+        } else {
+            candidates = inOrder(from, to);
+            scanned += to - from;
+        }
+        if (parallel) {
+            candidates = candidates.parallel();
+        }
+
+        IntPredicate byAmount = position -> {
+            long cents = rows.amountCents(position);
+            return (sign == 0 || Long.signum(cents) == sign) && cents >= minCents && cents <= maxCents;
+        };
+        if (sign != 0 || minCents != Long.MIN_VALUE || maxCents != Long.MAX_VALUE) {
+            candidates = candidates.filter(byAmount);
+        }
+        if (text != null) {
+            String part = text;
+            candidates = candidates.filter(position -> containsIgnoreCase(rows.get(position).getDescription(), part));
+        }
+        return applyLimit && limit != Long.MAX_VALUE ? candidates.limit(limit) : candidates;
+    }
+
+    // Indexes from (inclusive) to to (exclusive), walked in the query's order
+    private IntStream inOrder(int from, int to) {
+        return newestFirst ? IntStream.range(from, to).map(i -> to - 1 - (i - from)) : IntStream.range(from, to);
+    }
+
+    // True when only the date range is set, so the rollups already hold the answer
+    private boolean onlyDates() {
+        return vendor == null && sign == 0 && minCents == Long.MIN_VALUE && maxCents == Long.MAX_VALUE
+                && text == null && limit == Long.MAX_VALUE;
+    }
+
+    // First index in positions[0, count) holding a value >= target
+    private static int lowerBound(int[] positions, int count, int target) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (positions[middle] < target) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static boolean containsIgnoreCase(String text, String part) {
+        for (int i = 0; i + part.length() <= text.length(); i++) {
+            if (text.regionMatches(true, i, part, 0, part.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
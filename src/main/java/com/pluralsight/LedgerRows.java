@@ -0,0 +1,28 @@
+package com.pluralsight;
+
+// The rows behind a LedgerStore, held in the store's sorted order.
+// LedgerStore decides where each row goes; an implementation only has to keep them there.
+//
+// Rows are written by one thread and read by many through snapshot(). To make that safe without locks,
+// an implementation never changes a slot a snapshot can see: it only writes in place when appending past
+// the current size, and copies its arrays for anything else (growing, inserting in the middle, clearing).
+public interface LedgerRows {
+
+    int size();
+
+    // The full transaction at this position
+    Transaction get(int position);
+
+    // Cheap per-field reads used for sorting, searching and scanning without building a Transaction
+    int epochDay(int position);
+    int secondOfDay(int position);
+    long amountCents(int position);
+
+    // Inserts at position, moving later rows up by one
+    void insert(int position, Transaction t);
+
+    void clear();
+
+    // A read-only copy of the rows as they are now; costs O(1), later inserts don't show up in it
+    LedgerRows snapshot();
+}
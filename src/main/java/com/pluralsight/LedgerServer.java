@@ -0,0 +1,274 @@
+package com.pluralsight;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;//the JDK's built-in HTTP server, no libraries needed
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Headless JSON service over a TransactionManager, so many clients can use one ledger at the same time.
+//   GET  /ledger?offset=0&limit=50               every transaction, newest first
+//   GET  /ledger/deposits    /ledger/payments    oldest first, like the ledger menu
+//   GET  /ledger/vendor?name=Amazon              newest first, with the vendor's totals
+//   GET  /ledger/range?start=2024-01-01&end=2024-01-31   inclusive, newest first, with totals
+//   GET  /reports/month-to-date  (also previous-month, year-to-date, previous-year)
+//   POST /deposits   POST /payments   body {"description": "...", "vendor": "...", "amount": 12.50}
+//                                                the amount is always more than 0; payments are stored negative
+//   GET  /stats                                  call counts, latency percentiles and bytes written (LedgerMetrics)
+// Every list is paged with offset and limit. Errors come back as {"error": "..."} with a 4xx status.
+// Requests run on virtual threads when the JVM has them (Java 21+), otherwise on a fixed pool.
+public class LedgerServer {
+
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAX_BODY = 64 * 1024; // bytes accepted in a POST body
+
+    private final TransactionManager manager;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    //CONSTRUCTOR______________
+    public LedgerServer(TransactionManager manager, int port) throws IOException {
+        this.manager = manager;
+        server = HttpServer.create(new InetSocketAddress(port), 4096); // deep backlog for bursts of connections
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/ledger", this::handle);
+        server.createContext("/reports", this::handle);
+        server.createContext("/deposits", this::handle);
+        server.createContext("/payments", this::handle);
+        server.createContext("/stats", this::handle);
+    }
+
+    // One virtual thread per request when available. Looked up by reflection so the app still
+    // builds and runs on Java 17, where a fixed pool of platform threads is used instead.
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Math.max(16, Runtime.getRuntime().availableProcessors() * 8);
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "ledger-http");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Stops taking requests, waits up to a second for the ones in flight, then stops the request threads
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    // ROUTING___________________________________
+    private void handle(HttpExchange exchange) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            Map<String, String> query = parseQuery(exchange.getRequestURI());
+
+            if (path.equals("/deposits") || path.equals("/payments")) {
+                if (!method.equals("POST")) {
+                    throw new RequestException(405, "use POST");
+                }
+                body = add(readBody(exchange), path.equals("/deposits"));
+                status = 201;
+            } else if (!method.equals("GET")) {
+                throw new RequestException(405, "use GET");
+            } else {
+                body = list(path, query);
+            }
+        } catch (RequestException e) {
+            status = e.status;
+            body = LedgerJson.error(e.getMessage());
+        } catch (RuntimeException e) {
+            // The details stay in the server's log; the client only learns that something went wrong
+            System.out.println("Error handling " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + ": " + e);
+            e.printStackTrace(System.out);
+            status = 500;
+            body = LedgerJson.error("internal error");
+        }
+        send(exchange, status, body);
+    }
+
+    // GET ENDPOINTS_____________________________
+    private String list(String path, Map<String, String> query) {
+        int offset = intParam(query, "offset", 0);
+        int limit = intParam(query, "limit", DEFAULT_LIMIT);
+        if (offset < 0 || limit < 0 || limit > MAX_LIMIT) {
+            throw new RequestException(400, "offset must be 0 or more and limit 0 to " + MAX_LIMIT);
+        }
+
+        if (path.equals("/stats")) {
+            return LedgerMetrics.toJson();
+        } else if (path.equals("/ledger") || path.equals("/ledger/")) {
+            return LedgerJson.page(manager.getAll(), offset, limit, null);
+        } else if (path.equals("/ledger/deposits")) {
+            return LedgerJson.page(manager.getDeposits(), offset, limit, null);
+        } else if (path.equals("/ledger/payments")) {
+            return LedgerJson.page(manager.getPayments(), offset, limit, null);
+        } else if (path.equals("/ledger/vendor")) {
+            String vendor = required(query, "name");
+            return LedgerJson.page(manager.getByVendor(vendor), offset, limit, manager.getVendorTotals(vendor));
+        } else if (path.equals("/ledger/range")) {
+            LocalDate start = dateParam(query, "start");
+            LocalDate end = dateParam(query, "end");
+            if (end.isBefore(start)) {
+                throw new RequestException(400, "end is before start");
+            }
+            return LedgerJson.page(manager.getByDateRange(start, end), offset, limit, manager.getTotals(start, end));
+        } else if (path.startsWith("/reports/")) {
+            Reports.Period period = periodNamed(path.substring("/reports/".length()));
+            LocalDate today = LocalDate.now();
+            LocalDate start = period.start(today);
+            LocalDate end = period.end(today);
+            return LedgerJson.page(manager.getByDateRange(start, end), offset, limit, manager.getTotals(start, end));
+        }
+        throw new RequestException(404, "no such endpoint: " + path);
+    }
+
+    // "previous-month" -> PREVIOUS_MONTH
+    private static Reports.Period periodNamed(String name) {
+        for (Reports.Period period : Reports.Period.values()) {
+            if (period.name().replace('_', '-').equalsIgnoreCase(name)) {
+                return period;
+            }
+        }
+        throw new RequestException(404, "no such report: " + name
+                + " (month-to-date, previous-month, year-to-date or previous-year)");
+    }
+
+    // POST ENDPOINTS____________________________
+    private String add(String body, boolean isDeposit) {
+        Map<String, String> fields;
+        try {
+            fields = LedgerJson.parseObject(body);
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(400, "body is not a JSON object: " + e.getMessage());
+        }
+        String description = required(fields, "description");
+        String vendor = required(fields, "vendor");
+        checkField("description", description);
+        checkField("vendor", vendor);
+
+        BigDecimal amount;
+        Transaction t;
+        try {
+            amount = new BigDecimal(required(fields, "amount").trim());
+            if (amount.signum() <= 0) {
+                throw new RequestException(400, "amount must be more than 0");
+            }
+            t = manager.createTransaction(description, vendor, amount, isDeposit); // rejects part cents
+        } catch (IllegalArgumentException e) { // also catches NumberFormatException
+            throw new RequestException(400, "invalid amount");
+        }
+
+        if (!manager.add(t)) { // blocks only this request's thread while the writer batches it to disk
+            throw new RequestException(503, "transaction could not be saved");
+        }
+        return LedgerJson.appendTransaction(new StringBuilder(128), t).toString();
+    }
+
+    // The CSV is pipe-delimited, one row per line, so those characters can't be stored in a field
+    private static void checkField(String name, String value) {
+        if (value.indexOf('|') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            throw new RequestException(400, name + " cannot contain '|' or line breaks");
+        }
+    }
+
+    // REQUEST HELPERS___________________________
+    private static Map<String, String> parseQuery(URI uri) {
+        Map<String, String> query = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static String required(Map<String, String> values, String name) {
+        String value = values.get(name);
+        if (value == null) {
+            throw new RequestException(400, "missing " + name);
+        }
+        return value;
+    }
+
+    private static int intParam(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new RequestException(400, name + " must be a whole number");
+        }
+    }
+
+    private static LocalDate dateParam(Map<String, String> query, String name) {
+        try {
+            return LocalDate.parse(required(query, name));
+        } catch (DateTimeParseException e) {
+            throw new RequestException(400, name + " must be a date like 2024-01-31");
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY + 1);
+            if (bytes.length > MAX_BODY) {
+                throw new RequestException(413, "body is larger than " + MAX_BODY + " bytes");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // A request the client got wrong, turned into an error response with this status
+    private static class RequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
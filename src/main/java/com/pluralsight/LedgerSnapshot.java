@@ -0,0 +1,237 @@
+package com.pluralsight;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32C;//checksum that catches torn or corrupted snapshot files
+import java.util.zip.CheckedOutputStream;
+
+// Binary snapshot of the ledger, written beside the CSV (transactions.csv.snap) so startup can skip text parsing.
+// Layout (big-endian), version 2:
+//   "LEDGSNAP"  version:int  csvSize:long  csvModified:long  rows:int
+//   vendors:int  then per vendor spelling  length:int bytes(UTF-8)
+//   columns, rows entries each: epochDay:int[]  secondOfDay:int[]  cents:long[]  scale:byte[]
+//                               vendor:int[]  descriptionLength:int[]  then all description bytes
+//   exact:int  then per row whose amount cents + scale can't give back (a fraction of a cent, or a scale
+//              past a byte; its scale is written as -128)  row:int  length:int  amount text(US-ASCII)
+//   crc32c:long over everything after the magic
+// Version 1 is the same without the exact section, and still loads.
+// The CSV's size and modified time are recorded so a snapshot is only used while it matches the CSV exactly.
+public class LedgerSnapshot {
+
+    private static final byte[] MAGIC = "LEDGSNAP".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 2;
+    private static final byte EXACT = Byte.MIN_VALUE; // scale of a row whose amount is in the exact section
+
+    // Snapshot file that goes with a CSV file
+    public static Path pathFor(Path csv) {
+        return csv.resolveSibling(csv.getFileName() + ".snap");
+    }
+
+    // WRITE_____________________________________
+    // Writes rows (oldest first) to a temp file and moves it into place, recording the CSV it matches
+    public static void write(Path snapshot, Path csv, List<Transaction> rows) throws IOException {
+        int count = rows.size();
+        int[] epochDays = new int[count];
+        int[] seconds = new int[count];
+        long[] cents = new long[count];
+        byte[] scales = new byte[count];
+        int[] vendorIds = new int[count];
+        int[] descriptionLengths = new int[count];
+        ByteArrayOutputStream descriptions = new ByteArrayOutputStream();
+        HashMap<String, Integer> vendorIdBySpelling = new HashMap<>();
+        ArrayList<String> vendors = new ArrayList<>();
+        ArrayList<Integer> exactRows = new ArrayList<>(); // usually none
+
+        for (int i = 0; i < count; i++) {
+            Transaction t = rows.get(i);
+            epochDays[i] = (int) t.getDate().toEpochDay();
+            seconds[i] = t.getTime().toSecondOfDay();
+            cents[i] = t.getAmountCents();
+            int scale = t.getAmount().scale();
+            boolean fits = scale > EXACT && scale <= Byte.MAX_VALUE
+                    && (scale <= 2 || BigDecimal.valueOf(cents[i], 2).compareTo(t.getAmount()) == 0);
+            scales[i] = fits ? (byte) scale : EXACT;
+            if (!fits) {
+                exactRows.add(i);
+            }
+            Integer vendorId = vendorIdBySpelling.get(t.getVendor());
+            if (vendorId == null) {
+                vendorId = vendors.size();
+                vendorIdBySpelling.put(t.getVendor(), vendorId);
+                vendors.add(t.getVendor());
+            }
+            vendorIds[i] = vendorId;
+            byte[] description = t.getDescription().getBytes(StandardCharsets.UTF_8);
+            descriptionLengths[i] = description.length;
+            descriptions.write(description);
+        }
+
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        CRC32C crc = new CRC32C();
+        try (OutputStream file = Files.newOutputStream(temp)) {
+            file.write(MAGIC);
+
+            // Everything between the magic and the trailing checksum goes through the checksum
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 16));
+            out.writeInt(VERSION);
+            out.writeLong(Files.size(csv));
+            out.writeLong(Files.getLastModifiedTime(csv).toMillis());
+            out.writeInt(count);
+            out.writeInt(vendors.size());
+            for (String vendor : vendors) {
+                byte[] bytes = vendor.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            for (int value : epochDays) out.writeInt(value);
+            for (int value : seconds) out.writeInt(value);
+            for (long value : cents) out.writeLong(value);
+            out.write(scales);
+            for (int value : vendorIds) out.writeInt(value);
+            for (int value : descriptionLengths) out.writeInt(value);
+            descriptions.writeTo(out);
+            out.writeInt(exactRows.size());
+            for (int row : exactRows) {
+                byte[] amount = rows.get(row).getAmount().toString().getBytes(StandardCharsets.US_ASCII);
+                out.writeInt(row);
+                out.writeInt(amount.length);
+                out.write(amount);
+            }
+            out.flush();
+
+            file.write(ByteBuffer.allocate(Long.BYTES).putLong(crc.getValue()).array());
+        }
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // READ______________________________________
+    // Returns the snapshot's rows, oldest first, or null when there is no snapshot or it no longer matches
+    // the CSV (pass csv = null to skip that check). Throws IOException when the snapshot is corrupt.
+    public static List<Transaction> read(Path snapshot, Path csv, VendorDictionary vendorNames) throws IOException {
+        if (!Files.exists(snapshot)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("snapshot is too large to map");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer, csv, vendorNames);
+        } catch (RuntimeException e) {
+            // Counts or values that don't fit the file - buffer underflows, bad dates and so on
+            throw new IOException("snapshot is truncated or corrupt", e);
+        }
+    }
+
+    private static List<Transaction> read(ByteBuffer buffer, Path csv, VendorDictionary vendorNames) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("not a ledger snapshot");
+        }
+
+        // Verify the checksum before trusting any of the counts
+        if (buffer.remaining() < Long.BYTES) {
+            throw new IOException("snapshot is truncated");
+        }
+        int checksumAt = buffer.limit() - Long.BYTES;
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(MAGIC.length).limit(checksumAt));
+        if (crc.getValue() != buffer.getLong(checksumAt)) {
+            throw new IOException("snapshot checksum does not match");
+        }
+
+        int version = buffer.getInt();
+        if (version != VERSION && version != 1) {
+            throw new IOException("unsupported snapshot version " + version);
+        }
+        long csvSize = buffer.getLong();
+        long csvModified = buffer.getLong();
+        if (csv != null && (!Files.exists(csv) || Files.size(csv) != csvSize
+                || Files.getLastModifiedTime(csv).toMillis() != csvModified)) {
+            return null; // the CSV has changed since the snapshot was written
+        }
+
+        int count = buffer.getInt();
+        String[] vendors = new String[buffer.getInt()];
+        for (int i = 0; i < vendors.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            vendors[i] = vendorNames.intern(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        // Column positions, in the order they were written
+        int epochDays = buffer.position();
+        int seconds = epochDays + count * Integer.BYTES;
+        int cents = seconds + count * Integer.BYTES;
+        int scales = cents + count * Long.BYTES;
+        int vendorIds = scales + count;
+        int descriptionLengths = vendorIds + count * Integer.BYTES;
+        int description = descriptionLengths + count * Integer.BYTES;
+
+        // Amounts kept as text, found after the descriptions
+        int descriptionBytes = 0;
+        for (int i = 0; i < count; i++) {
+            descriptionBytes += buffer.getInt(descriptionLengths + i * Integer.BYTES);
+        }
+        HashMap<Integer, BigDecimal> exact = new HashMap<>();
+        int end = description + descriptionBytes;
+        if (version >= 2) {
+            buffer.position(end);
+            int exactCount = buffer.getInt();
+            for (int i = 0; i < exactCount; i++) {
+                int row = buffer.getInt();
+                byte[] amount = new byte[buffer.getInt()];
+                buffer.get(amount);
+                exact.put(row, new BigDecimal(new String(amount, StandardCharsets.US_ASCII)));
+            }
+            end = buffer.position();
+        }
+
+        ArrayList<Transaction> rows = new ArrayList<>(count);
+        byte[] text = new byte[256];
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt(descriptionLengths + i * Integer.BYTES);
+            if (length > text.length) {
+                text = new byte[Math.max(length, text.length * 2)];
+            }
+            buffer.get(description, text, 0, length);
+            description += length;
+
+            byte scale = buffer.get(scales + i);
+            rows.add(new Transaction(
+                    LocalDate.ofEpochDay(buffer.getInt(epochDays + i * Integer.BYTES)),
+                    LocalTime.ofSecondOfDay(buffer.getInt(seconds + i * Integer.BYTES)),
+                    new String(text, 0, length, StandardCharsets.UTF_8),
+                    vendors[buffer.getInt(vendorIds + i * Integer.BYTES)],
+                    scale == EXACT && version >= 2
+                            ? exact.get(i)
+                            : BigDecimal.valueOf(buffer.getLong(cents + i * Long.BYTES), 2).setScale(scale)
+            ));
+        }
+        if (end != checksumAt) {
+            throw new IOException("snapshot has unexpected trailing data");
+        }
+        return rows;
+    }
+}
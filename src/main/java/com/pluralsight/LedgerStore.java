@@ -0,0 +1,417 @@
+package com.pluralsight;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.ToLongFunction;
+
+// Holds every transaction kept sorted oldest to newest by date and time.
+// Transactions with the same date and time stay in the order they were added (their sequence),
+// so the order is stable and nothing ever needs re-sorting when the ledger is displayed.
+// The rows themselves live in a LedgerRows - Transaction objects or primitive columns (see StorageLayout).
+//
+// One thread writes (add/addAll); any number of threads can read at the same time without locking.
+// After each write the store publishes a new View - a snapshot of the rows and vendor postings - and
+// every query reads from the View current when it started, so the lists it returns never change under it.
+// The rollups are updated and the View published inside one Rollups write, so totals never run ahead of
+// the rows; nothing a reader does waits on the writer apart from a totals read that overlaps a write.
+public class LedgerStore {
+
+    // Sort key: date, then time to the second. Ties are left in insertion order by the stable sort and by add().
+    public static final Comparator<Transaction> CHRONOLOGICAL =
+            Comparator.comparing(Transaction::getDate).thenComparingInt(t -> t.getTime().toSecondOfDay());
+
+    private static final int REBUILD_BATCH = 256; // batches bigger than this that go back in time are merged in
+
+    private final VendorDictionary vendors = new VendorDictionary();
+    private final StorageLayout layout;
+    private LedgerRows rows;                                               // writer's copy
+    private final ArrayList<Postings> vendorPostings = new ArrayList<>(); // vendor id -> positions of its transactions
+    private Rollups rollups = new Rollups();                               // day/month/year/vendor totals
+    private RunningBalances balances = new RunningBalances();              // running balance after each row
+    private TextIndex text = new TextIndex();                              // words of descriptions and vendors
+    private volatile View current;                                         // what readers see
+
+    //CONSTRUCTOR______________
+    public LedgerStore() {
+        this(StorageLayout.ROWS);
+    }
+
+    public LedgerStore(StorageLayout layout) {
+        this.layout = layout;
+        rows = newRows();
+        publish();
+    }
+
+    private LedgerRows newRows() {
+        return layout == StorageLayout.COLUMNAR ? new ColumnarRows(vendors) : new ObjectRows();
+    }
+
+    // ADD A BATCH (E.G. WHEN LOADING)____________
+    public void addAll(Collection<Transaction> batch) {
+        // Existing rows go first so equal date/times keep their insertion order through the stable sort
+        LedgerRows existing = rows;
+        ArrayList<Transaction> merged = new ArrayList<>(existing.size() + batch.size());
+        for (int i = 0; i < existing.size(); i++) {
+            merged.add(existing.get(i));
+        }
+        merged.addAll(batch);
+        merged.sort(CHRONOLOGICAL); // stable merge sort - almost free when the file is already in order
+
+        // Positions moved, so refill the rows and rebuild the vendor postings and the totals in one pass.
+        // Everything is built aside and swapped in at the end, so readers never see a half-built store.
+        LedgerRows rebuilt = newRows();
+        Rollups totals = new Rollups();
+        RunningBalances running = new RunningBalances();
+        vendorPostings.clear();
+        for (int i = 0; i < merged.size(); i++) {
+            Transaction t = merged.get(i);
+            rebuilt.insert(i, t);
+            int vendorId = vendors.idOf(t.getVendor());
+            postingsFor(vendorId).add(i);
+            totals.add(t, vendorId);
+            running.insert(i, t.getAmountCents());
+        }
+        rows = rebuilt;
+        rollups = totals;
+        balances = running;
+        text = TextIndex.build(merged); // in parallel; readers keep using the old index until the publish
+        publish();
+    }
+
+    // ADD TRANSACTIONS___________________________
+    // Returns the position the transaction was inserted at
+    public int add(Transaction t) {
+        int[] position = new int[1];
+        rollups.write(() -> {
+            position[0] = insert(t);
+            publish();
+        });
+        return position[0];
+    }
+
+    // Adds several transactions but publishes only once, so readers see all of them or none.
+    // Each insert before the newest row copies the rows (see LedgerRows), so a large batch that reaches
+    // back in time is merged in with one rebuild instead - O(n + k) rather than O(n * k).
+    public void add(List<Transaction> batch) {
+        if (batch.size() > REBUILD_BATCH && !allAfterNewest(batch)) {
+            addAll(batch);
+            return;
+        }
+        rollups.write(() -> {
+            for (Transaction t : batch) {
+                insert(t);
+            }
+            publish();
+        });
+    }
+
+    // True when every row of batch goes on the end: in order, and none older than the newest row
+    private boolean allAfterNewest(List<Transaction> batch) {
+        Transaction previous = null;
+        for (Transaction t : batch) {
+            if (previous != null && CHRONOLOGICAL.compare(previous, t) > 0) {
+                return false;
+            }
+            previous = t;
+        }
+        int size = rows.size();
+        Transaction first = batch.get(0);
+        return size == 0 || compareAt(size - 1, (int) first.getDate().toEpochDay(), first.getTime().toSecondOfDay()) <= 0;
+    }
+
+    private int insert(Transaction t) {
+        int position = insertionPoint((int) t.getDate().toEpochDay(), t.getTime().toSecondOfDay());
+        rows.insert(position, t);
+
+        if (position < rows.size() - 1) {
+            // Inserted before existing rows: every posting at or after this position moves up by one
+            for (Postings postings : vendorPostings) {
+                postings.shiftFrom(position);
+            }
+        }
+        int vendorId = vendors.idOf(t.getVendor());
+        postingsFor(vendorId).insert(position);
+        rollups.add(t, vendorId); // keep the totals current without another pass
+        balances.insert(position, t.getAmountCents());
+        text = text.insert(position, t, position == rows.size() - 1);
+        return position;
+    }
+
+    // Makes the writer's current rows and postings visible to readers
+    private void publish() {
+        int[][] positions = new int[vendorPostings.size()][];
+        int[] counts = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = vendorPostings.get(i).positions;
+            counts[i] = vendorPostings.get(i).size;
+        }
+        text.publish();
+        current = new View(rows.snapshot(), positions, counts, balances.snapshot(), text, rollups);
+    }
+
+    private Postings postingsFor(int id) {
+        while (vendorPostings.size() <= id) {
+            vendorPostings.add(new Postings());
+        }
+        return vendorPostings.get(id);
+    }
+
+    // Binary search for the slot after every row that sorts on or before (epochDay, second)
+    private int insertionPoint(int epochDay, int second) {
+        int size = rows.size();
+        if (size == 0 || compareAt(size - 1, epochDay, second) <= 0) {
+            return size; // the usual case: new transactions are the newest
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareAt(middle, epochDay, second) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Compares the row at position with (epochDay, second) without building a Transaction
+    private int compareAt(int position, int epochDay, int second) {
+        int byDay = Integer.compare(rows.epochDay(position), epochDay);
+        return byDay != 0 ? byDay : Integer.compare(rows.secondOfDay(position), second);
+    }
+
+    // DATE INDEX__________________________________
+    // The store is sorted by date, so it is its own date index: a binary search finds where a day starts
+    public int firstOnOrAfter(LocalDate date) {
+        return firstOnOrAfter(current.rows, date);
+    }
+
+    static int firstOnOrAfter(LedgerRows rows, LocalDate date) {
+        long epochDay = date.toEpochDay();
+        int low = 0;
+        int high = rows.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (rows.epochDay(middle) < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // VENDOR INDEX________________________________
+    public VendorDictionary vendors() { return vendors; }
+    public Rollups rollups() { return current.rollups; }
+
+    // Every transaction for the vendor (ignoring case), newest first - O(k) instead of a full scan
+    public List<Transaction> newestFirstForVendor(String vendor) {
+        View view = current;
+        int id = vendors.find(vendor);
+        if (id < 0 || id >= view.postings.length) {
+            return Collections.emptyList();
+        }
+        return new PositionsView(view.rows, view.postings[id], view.postingCounts[id], true);
+    }
+
+    // AMOUNT SCANS________________________________
+    // Positive (sign > 0) or negative (sign < 0) amounts, oldest first. Scans only the amount of each row
+    // and builds Transactions just for the rows that are read from the returned list.
+    public List<Transaction> oldestFirstWithSign(int sign) {
+        LedgerRows rows = current.rows;
+        int[] matches = new int[16];
+        int count = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            if (Long.signum(rows.amountCents(i)) == Integer.signum(sign)) {
+                if (count == matches.length) {
+                    matches = Arrays.copyOf(matches, count * 2);
+                }
+                matches[count++] = i;
+            }
+        }
+        return new PositionsView(rows, matches, count, false);
+    }
+
+    public int size() { return current.rows.size(); }
+    public Transaction get(int position) { return current.rows.get(position); }
+
+    // VIEWS_______________________________________
+    // Read-only views over a snapshot of the store - no copying or sorting, and later adds don't show up
+    public List<Transaction> oldestFirst() {
+        LedgerRows rows = current.rows;
+        return new AbstractList<>() {
+            @Override
+            public Transaction get(int index) {
+                return rows.get(index);
+            }
+
+            @Override
+            public int size() {
+                return rows.size();
+            }
+        };
+    }
+
+    public List<Transaction> newestFirst() {
+        LedgerRows rows = current.rows;
+        return new NewestFirstView(rows, 0, rows.size());
+    }
+
+    // Transactions dated start through end (inclusive), newest first - O(log n) to find, O(k) to read
+    public List<Transaction> newestFirst(LocalDate start, LocalDate end) {
+        LedgerRows rows = current.rows;
+        int from = firstOnOrAfter(rows, start);
+        int to = Math.max(from, firstOnOrAfter(rows, end.plusDays(1)));
+        return new NewestFirstView(rows, from, to);
+    }
+
+    // TEXT SEARCH________________________________
+    // Rows whose description or vendor has every word of query (a word ending in * matches as a prefix),
+    // newest first - see TextIndex. The View's index matches its rows, so this never waits on the writer.
+    public List<Transaction> search(String query) {
+        View view = current;
+        int[] positions = view.text.search(query, view.rows.size());
+        return new PositionsView(view.rows, positions, positions.length, true);
+    }
+
+    // BALANCES___________________________________
+    // Balance on any date and net flow between dates, as of right now - O(log n) per date
+    public Balances balances() {
+        return balances(date -> 0);
+    }
+
+    // elsewhere adds the balance of rows kept outside the store, e.g. a partitioned ledger's cold months
+    public Balances balances(ToLongFunction<LocalDate> elsewhere) {
+        View view = current;
+        return new Balances(view.rows, view.balances, elsewhere);
+    }
+
+    // The View current right now, for LedgerQuery
+    View view() { return current; }
+
+    // What readers see: the rows and each vendor's postings as of one write
+    static class View {
+        final LedgerRows rows;
+        final int[][] postings;    // vendor id -> positions (only the first postingCounts[id] are used)
+        final int[] postingCounts;
+        final RunningBalances balances; // running balance after each of rows
+        final TextIndex text;           // only appended past rows, or replaced (see TextIndex)
+        final Rollups rollups;          // totals of rows as of the latest publish (see Rollups)
+
+        View(LedgerRows rows, int[][] postings, int[] postingCounts, RunningBalances balances, TextIndex text,
+             Rollups rollups) {
+            this.rows = rows;
+            this.postings = postings;
+            this.postingCounts = postingCounts;
+            this.balances = balances;
+            this.text = text;
+            this.rollups = rollups;
+        }
+    }
+
+    // Walks positions [from, to) of the sorted rows backwards
+    private static class NewestFirstView extends AbstractList<Transaction> implements RandomAccess {
+        private final LedgerRows rows;
+        private final int from;
+        private final int to;
+
+        NewestFirstView(LedgerRows rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Transaction get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return rows.get(to - 1 - index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    // Rows at the first count positions of a sorted positions array, optionally walked backwards
+    private static class PositionsView extends AbstractList<Transaction> implements RandomAccess {
+        private final LedgerRows rows;
+        private final int[] positions;
+        private final int count;
+        private final boolean newestFirst;
+
+        PositionsView(LedgerRows rows, int[] positions, int count, boolean newestFirst) {
+            this.rows = rows;
+            this.positions = positions;
+            this.count = count;
+            this.newestFirst = newestFirst;
+        }
+
+        @Override
+        public Transaction get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return rows.get(positions[newestFirst ? count - 1 - index : index]);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+
+    // Sorted, growable list of store positions for one vendor.
+    // Like the rows, it only writes in place past size; shifting or inserting in the middle copies the
+    // array, because published Views may still be reading the old one.
+    private static class Postings {
+        int[] positions = new int[4];
+        int size;
+
+        void add(int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+
+        // Inserts position keeping the list sorted - normally it is the largest and goes on the end
+        void insert(int position) {
+            int at = size;
+            while (at > 0 && positions[at - 1] > position) {
+                at--;
+            }
+            if (at == size) {
+                add(position);
+                return;
+            }
+            int[] copy = new int[size == positions.length ? size * 2 : positions.length];
+            System.arraycopy(positions, 0, copy, 0, at);
+            System.arraycopy(positions, at, copy, at + 1, size - at);
+            copy[at] = position;
+            positions = copy;
+            size++;
+        }
+
+        void shiftFrom(int position) {
+            if (size == 0 || positions[size - 1] < position) {
+                return; // nothing at or after position
+            }
+            positions = Arrays.copyOf(positions, positions.length);
+            for (int i = size - 1; i >= 0 && positions[i] >= position; i--) {
+                positions[i]++;
+            }
+        }
+    }
+}
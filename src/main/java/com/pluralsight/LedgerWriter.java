@@ -0,0 +1,202 @@
+package com.pluralsight;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;//lets the caller wait for (or ignore) its write
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.UnaryOperator;
+
+// The single thread that changes the ledger.
+// Any thread can submit a transaction; they queue up here and the writer thread takes whatever has
+// piled up (up to MAX_BATCH), appends it to the CSV in one write, adds it to the store with one publish,
+// and then completes each caller's future. Readers never wait on any of this (see LedgerStore).
+// Other work that must not interleave with writes (e.g. writing a snapshot) can be queued with run(),
+// and a whole import can be committed as one batch with submitAll().
+public class LedgerWriter implements Closeable {
+
+    private static final int MAX_BATCH = 1024; // requests handled per trip to the disk
+
+    private final TransactionJournal journal; // null when the CSV could not be opened
+    private final LedgerStore store;
+    private final LinkedBlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private boolean closed;
+
+    // One queued transaction, batch or task; stop marks the end of the queue
+    private static class Request {
+        final Transaction transaction;
+        final List<Transaction> batch;
+        final UnaryOperator<List<Transaction>> beforeWrite;
+        final Runnable task;
+        final boolean stop;
+        final CompletableFuture<Boolean> done = new CompletableFuture<>();
+
+        Request(Transaction transaction, List<Transaction> batch, UnaryOperator<List<Transaction>> beforeWrite,
+                Runnable task, boolean stop) {
+            this.transaction = transaction;
+            this.batch = batch;
+            this.beforeWrite = beforeWrite;
+            this.task = task;
+            this.stop = stop;
+        }
+    }
+
+    //CONSTRUCTOR______________
+    public LedgerWriter(TransactionJournal journal, LedgerStore store) {
+        this.journal = journal;
+        this.store = store;
+        thread = new Thread(this::run, "ledger-writer");
+        thread.setDaemon(true); // close() drains the queue; this just never keeps the app alive on its own
+        thread.start();
+    }
+
+    // SUBMIT WORK___________________________________
+    // Completes with true once the transaction is in the CSV and the store, false if it could not be saved
+    public CompletableFuture<Boolean> submit(Transaction t) {
+        return enqueue(new Request(t, null, null, null, false));
+    }
+
+    // Commits a whole batch on its own: beforeWrite runs first on the writer thread, so it sees every earlier
+    // write (e.g. to drop duplicates), then what it returns is appended in one write and forced to disk
+    public CompletableFuture<Boolean> submitAll(List<Transaction> batch, UnaryOperator<List<Transaction>> beforeWrite) {
+        return enqueue(new Request(null, batch, beforeWrite, null, false));
+    }
+
+    // Runs task on the writer thread, after every write queued before it
+    public CompletableFuture<Boolean> run(Runnable task) {
+        return enqueue(new Request(null, null, null, task, false));
+    }
+
+    private synchronized CompletableFuture<Boolean> enqueue(Request request) {
+        if (closed) {
+            throw new IllegalStateException("ledger writer is closed");
+        }
+        queue.add(request);
+        return request.done;
+    }
+
+    // WRITER THREAD_________________________________
+    private void run() {
+        ArrayList<Request> batch = new ArrayList<>(MAX_BATCH);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take()); // wait for work...
+            } catch (InterruptedException e) {
+                continue; // only close() stops the writer
+            }
+            queue.drainTo(batch, MAX_BATCH - 1); // ...then take everything else already waiting
+
+            // Consecutive transactions are written together; batches and tasks run in their place in the queue
+            int start = 0;
+            for (int i = 0; i <= batch.size(); i++) {
+                Request request = i < batch.size() ? batch.get(i) : null;
+                if (request != null && request.transaction != null) {
+                    continue;
+                }
+                write(batch.subList(start, i));
+                start = i + 1;
+                if (request == null) {
+                    break;
+                }
+                if (request.stop) {
+                    stopping = true;
+                    request.done.complete(true);
+                } else if (request.batch != null) {
+                    writeBatch(request);
+                } else {
+                    runTask(request);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    // Appends a run of transactions to the CSV with one write, then to the store with one publish
+    private void write(List<Request> requests) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        ArrayList<Transaction> transactions = new ArrayList<>(requests.size());
+        for (Request request : requests) {
+            transactions.add(request.transaction);
+        }
+        boolean saved;
+        try {
+            saved = commit(transactions, false);
+        } catch (RuntimeException e) {
+            for (Request request : requests) {
+                request.done.completeExceptionally(e);
+            }
+            return;
+        }
+        for (Request request : requests) {
+            request.done.complete(saved);
+        }
+    }
+
+    private void writeBatch(Request request) {
+        try {
+            List<Transaction> transactions = request.beforeWrite.apply(request.batch);
+            request.done.complete(transactions.isEmpty() || commit(transactions, true));
+        } catch (RuntimeException e) {
+            request.done.completeExceptionally(e);
+        }
+    }
+
+    // Returns false (after printing why) if the CSV could not be written; durable forces it to disk right away
+    private boolean commit(List<Transaction> transactions, boolean durable) {
+        // The CSV first, so the store never holds a transaction the file doesn't
+        if (journal == null) {
+            System.out.println("Error saving CSV: file is not open");
+            return false;
+        }
+        LedgerMetrics.Span span = LedgerMetrics.SAVE.start();
+        long bytes;
+        try {
+            bytes = journal.appendAll(transactions);
+            if (durable) {
+                journal.sync();
+            }
+        } catch (IOException e) {
+            System.out.println("Error saving CSV: " + e.getMessage());
+            span.end(0, 0);
+            return false;
+        }
+        store.add(transactions);
+        span.end(0, transactions.size(), bytes);
+        return true;
+    }
+
+    private void runTask(Request request) {
+        try {
+            request.task.run();
+            request.done.complete(true);
+        } catch (RuntimeException e) {
+            request.done.completeExceptionally(e);
+        }
+    }
+
+    // CLOSE__________________________________
+    // Finishes everything already queued, then stops the writer thread
+    @Override
+    public void close() {
+        Request stop;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            stop = new Request(null, null, null, null, true);
+            queue.add(stop);
+        }
+        stop.done.join();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
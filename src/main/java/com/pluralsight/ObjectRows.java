@@ -0,0 +1,71 @@
+package com.pluralsight;
+
+// Keeps each row as its Transaction object
+public class ObjectRows implements LedgerRows {
+
+    private Transaction[] transactions;
+    private int size;
+    private final boolean readOnly;
+
+    public ObjectRows() {
+        this(new Transaction[16], 0, false);
+    }
+
+    private ObjectRows(Transaction[] transactions, int size, boolean readOnly) {
+        this.transactions = transactions;
+        this.size = size;
+        this.readOnly = readOnly;
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public Transaction get(int position) { return transactions[check(position)]; }
+
+    @Override
+    public int epochDay(int position) { return (int) get(position).getDate().toEpochDay(); }
+
+    @Override
+    public int secondOfDay(int position) { return get(position).getTime().toSecondOfDay(); }
+
+    @Override
+    public long amountCents(int position) { return get(position).getAmountCents(); }
+
+    @Override
+    public void insert(int position, Transaction t) {
+        if (readOnly) {
+            throw new UnsupportedOperationException("snapshot rows are read-only");
+        }
+        if (position < 0 || position > size) {
+            throw new IndexOutOfBoundsException(position);
+        }
+        if (position < size || size == transactions.length) {
+            // Copy instead of shifting in place - snapshots may still be reading the old array
+            Transaction[] copy = new Transaction[size == transactions.length ? size * 2 : transactions.length];
+            System.arraycopy(transactions, 0, copy, 0, position);
+            System.arraycopy(transactions, position, copy, position + 1, size - position);
+            transactions = copy;
+        }
+        transactions[position] = t;
+        size++;
+    }
+
+    @Override
+    public void clear() {
+        transactions = new Transaction[16];
+        size = 0;
+    }
+
+    @Override
+    public LedgerRows snapshot() {
+        return new ObjectRows(transactions, size, true);
+    }
+
+    private int check(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException(position);
+        }
+        return position;
+    }
+}
@@ -1,123 +1,180 @@
 package com.pluralsight;
 import java.time.LocalDate;
-import java.util.ArrayList;//imports arraylist from TransactionManager
+import java.util.List;
 
 public class Reports {
     private TransactionManager manager; // Reference to the TransactionManager
 
+    // Timed by LedgerMetrics from the query through the last printed line, since the lists are only read
+    // as they are displayed (the Stats screen shows them as report.*)
+    private static final LedgerMetrics.Operation PERIOD_REPORT = LedgerMetrics.operation("report.period");
+    private static final LedgerMetrics.Operation VENDOR_REPORT = LedgerMetrics.operation("report.vendor");
+    private static final LedgerMetrics.Operation SEARCH_REPORT = LedgerMetrics.operation("report.search");
+    private static final LedgerMetrics.Operation BALANCE_REPORT = LedgerMetrics.operation("report.balance");
+    private static final LedgerMetrics.Operation NET_FLOW_REPORT = LedgerMetrics.operation("report.net-flow");
+    private static final LedgerMetrics.Operation SERIES_REPORT = LedgerMetrics.operation("report.balance-series");
+    private static final LedgerMetrics.Operation QUERY_REPORT = LedgerMetrics.operation("report.custom-search");
+
     // Constructor: connects this class to the TransactionManager
     public Reports(TransactionManager manager) {
         this.manager = manager;
     }
-    //MONTH TO DATE REPORT______
-    public void showMonthToDate() {
-        // Gets all transactions from the manager
-        ArrayList<Transaction> allTransactions = manager.getAll();
-        //Create a new list to store transactions only for this month
-        ArrayList<Transaction> monthTransactions = new ArrayList<>();
-        //Determines start and end dates for current month
-        LocalDate startDate = LocalDate.now().withDayOfMonth(1); // First day of this month
-        LocalDate endDate = LocalDate.now(); // Today
-
-        //Loops through each transaction to check if it falls in this month
-        for (Transaction transaction : allTransactions) {
-            LocalDate transactionDate = transaction.getDate(); // Gets transaction date
-            boolean afterOrSameAsStart = !transactionDate.isBefore(startDate); // On or after start
-            boolean beforeOrSameAsEnd = !transactionDate.isAfter(endDate); // On or before today
-
-            //If transaction is in current month add it to the list
-            if (afterOrSameAsStart && beforeOrSameAsEnd) {
-                monthTransactions.add(transaction);
+    // REPORT PERIODS____________________________
+    // The fixed periods on the reports menu, worked out from today's date
+    // (also used by LedgerServer for its /reports endpoints)
+    public enum Period {
+        MONTH_TO_DATE("Month To Date"),
+        PREVIOUS_MONTH("Previous Month"),
+        YEAR_TO_DATE("Year To Date"),
+        PREVIOUS_YEAR("Previous Year");
+
+        private final String title;
+        private final LedgerMetrics.Operation operation; // e.g. report.month-to-date
+
+        Period(String title) {
+            this.title = title;
+            this.operation = LedgerMetrics.operation("report." + name().toLowerCase().replace('_', '-'));
+        }
+
+        public String getTitle() { return title; }
+        LedgerMetrics.Operation getOperation() { return operation; }
+
+        // First day of the period
+        public LocalDate start(LocalDate today) {
+            switch (this) {
+                case MONTH_TO_DATE: return today.withDayOfMonth(1); // First day of this month
+                case PREVIOUS_MONTH: return today.minusMonths(1).withDayOfMonth(1); // First day of last month
+                case YEAR_TO_DATE: return today.withDayOfYear(1); // January 1 of current year
+                default: return today.minusYears(1).withDayOfYear(1); // January 1 last year
             }
         }
-        //Displays the filtered transactions
-        System.out.println("\n=== Month To Date Transactions ===");
-        manager.display(monthTransactions);
-    }
 
-    //PREVIOUS MONTH REPORT_________________________________
-    public void showPreviousMonth() {
-        // Determine the first and last day of the previous month
-        LocalDate firstDayLastMonth = LocalDate.now() // Current date
-                .minusMonths(1) // Move back one month
-                .withDayOfMonth(1); // First day of that month
-
-        LocalDate lastDayLastMonth = firstDayLastMonth// First day of previous month
-                .plusMonths(1)  // Move to next month
-                .minusDays(1); // Go back one day :last day of previous month
-
-        //Gets all transactions from the manager
-        ArrayList<Transaction> allTransactions = manager.getAll();
-
-        //Creates list to store transactions from the previous month
-        ArrayList<Transaction> previousMonthTransactions = new ArrayList<>();
-
-        //Go through each transaction and check if it falls in previous month
-        for (Transaction transaction : allTransactions) {
-            LocalDate transactionDate = transaction.getDate(); // Get the date of the transaction
-            boolean onOrAfterFirstDay = !transactionDate.isBefore(firstDayLastMonth); // On/after start
-            boolean onOrBeforeLastDay = !transactionDate.isAfter(lastDayLastMonth);   // On/before end
-
-            //If transaction is within the previous month, add it to the list
-            if (onOrAfterFirstDay && onOrBeforeLastDay) {
-                previousMonthTransactions.add(transaction);
+        // Last day of the period (inclusive)
+        public LocalDate end(LocalDate today) {
+            switch (this) {
+                case PREVIOUS_MONTH: return start(today).plusMonths(1).minusDays(1); // last day of previous month
+                case PREVIOUS_YEAR: return start(today).withMonth(12).withDayOfMonth(31); // December 31 last year
+                default: return today; // the "to date" periods end today
             }
         }
+    }
+
+    //MONTH TO DATE REPORT______
+    public void showMonthToDate() {
+        showPeriod(Period.MONTH_TO_DATE);
+    }
 
-        //Displays the filtered transactions
-        System.out.println("\n=== Previous Month Transactions ===");
-        manager.display(previousMonthTransactions);
+    //PREVIOUS MONTH REPORT_________________________________
+    public void showPreviousMonth() {
+        showPeriod(Period.PREVIOUS_MONTH);
     }
 
     //YEAR TO DATE REPORT______________________________________
     public void showYearToDate() {
-        LocalDate firstDayOfYear = LocalDate.now().withDayOfYear(1); // January 1 of current year
-        LocalDate today = LocalDate.now(); // today's date
-
-        ArrayList<Transaction> allTransactions = manager.getAll();
-        ArrayList<Transaction> results = new ArrayList<>();
-
-        for (Transaction t : allTransactions) {
-            if (!t.getDate().isBefore(firstDayOfYear) && !t.getDate().isAfter(today)) {
-                results.add(t);
-            }
-        }
-
-        System.out.println("\n=== Year To Date Transactions ===");
-        manager.display(results);
+        showPeriod(Period.YEAR_TO_DATE);
     }
 
     //PREVIOUS YEAR REPORT________________________
     public void showPreviousYear() {
-        LocalDate firstDayPrevYear = LocalDate.now().minusYears(1).withDayOfYear(1); // January 1 last year
-        LocalDate lastDayPrevYear = firstDayPrevYear.withMonth(12).withDayOfMonth(31); // December 31 last year
+        showPeriod(Period.PREVIOUS_YEAR);
+    }
 
-        ArrayList<Transaction> allTransactions = manager.getAll();
-        ArrayList<Transaction> results = new ArrayList<>();
+    public void showPeriod(Period period) {
+        LocalDate today = LocalDate.now();
+        showPeriod(period.getOperation(), period.getTitle(), period.start(today), period.end(today));
+    }
 
-        for (Transaction t : allTransactions) {
-            if (!t.getDate().isBefore(firstDayPrevYear) && !t.getDate().isAfter(lastDayPrevYear)) {
-                results.add(t);
-            }
-        }
+    //ANY PERIOD REPORT____________________________
+    // Shared by every period report: one indexed range query instead of scanning all transactions
+    public void showPeriod(String title, LocalDate start, LocalDate end) {
+        showPeriod(PERIOD_REPORT, title, start, end);
+    }
+
+    private void showPeriod(LedgerMetrics.Operation operation, String title, LocalDate start, LocalDate end) {
+        LedgerMetrics.Span span = operation.start();
+        List<Transaction> results = manager.getByDateRange(start, end); // start and end are inclusive
 
-        System.out.println("\n=== Previous Year Transactions ===");
+        System.out.println("\n=== " + title + " Transactions ===");
         manager.display(results);
+        System.out.println("Totals: " + manager.getTotals(start, end)); // from the rollups, no extra pass
+        span.end(results.size(), results.size());
     }
 
     //SEARCH BY VENDOR REPORT ____________________________________
     public void showByVendor(String vendorName) {
-        ArrayList<Transaction> allTransactions = manager.getAll();
-        ArrayList<Transaction> results = new ArrayList<>();
+        LedgerMetrics.Span span = VENDOR_REPORT.start();
+        // Case-insensitive lookup through the vendor index
+        List<Transaction> results = manager.getByVendor(vendorName);
 
-        // Loops through all transactions t0 find specific vendor
-        for (Transaction t : allTransactions) {
-            if (t.getVendor().equalsIgnoreCase(vendorName)) {
-                results.add(t);
-            }
+        System.out.println("\n=== Transactions for Vendor: " + vendorName + " ===");
+        manager.display(results);
+        System.out.println("Totals: " + manager.getVendorTotals(vendorName));
+        span.end(results.size(), results.size());
+    }
+
+    //TEXT SEARCH REPORT__________________________
+    // Every word has to match (in the description or vendor); end a word with * to match its beginning
+    public void showSearch(String query) {
+        LedgerMetrics.Span span = SEARCH_REPORT.start();
+        long start = System.nanoTime();
+        List<Transaction> results = manager.search(query);
+        double millis = (System.nanoTime() - start) / 1e6;
+
+        System.out.println("\n=== Search: " + query + " ===");
+        manager.display(results);
+        System.out.println(results.size() + " matches, found in " + String.format("%.3f", millis) + " ms");
+        span.end(results.size(), results.size());
+    }
+
+    //BALANCE ON A DATE REPORT____________________
+    public void showBalance(LocalDate date) {
+        LedgerMetrics.Span span = BALANCE_REPORT.start();
+        System.out.println("\n=== Balance ===");
+        System.out.println("Balance at the end of " + date + ": " + manager.getBalances().balance(date));
+        span.end(0, 1);
+    }
+
+    //NET FLOW REPORT_____________________________
+    // Opening balance, what came in and went out, and closing balance - two O(log n) lookups, no rows read
+    public void showNetFlow(LocalDate start, LocalDate end) {
+        LedgerMetrics.Span span = NET_FLOW_REPORT.start();
+        Balances balances = manager.getBalances();
+        System.out.println("\n=== Net Flow " + start + " to " + end + " ===");
+        System.out.println("Opening balance: " + balances.balance(start.minusDays(1)));
+        System.out.println("Net flow:        " + balances.netFlow(start, end));
+        System.out.println("Closing balance: " + balances.balance(end));
+        span.end(0, 1);
+    }
+
+    //DAILY / MONTHLY BALANCE REPORT______________
+    public void showBalanceSeries(LocalDate start, LocalDate end, boolean monthly) {
+        LedgerMetrics.Span span = SERIES_REPORT.start();
+        Balances balances = manager.getBalances();
+        List<Balances.Point> points = monthly ? balances.monthly(start, end) : balances.daily(start, end);
+
+        StringBuilder table = new StringBuilder();
+        table.append("\n=== ").append(monthly ? "Monthly" : "Daily").append(" Balances ").append(start)
+                .append(" to ").append(end).append(" ===").append(System.lineSeparator());
+        table.append(String.format("%-12s %15s %15s", monthly ? "Month" : "Date", "Net Flow", "Balance"))
+                .append(System.lineSeparator());
+        for (Balances.Point point : points) {
+            String label = monthly ? point.getStart().toString().substring(0, 7) : point.getStart().toString();
+            table.append(String.format("%-12s %15s %15s", label, point.getFlow(), point.getBalance()))
+                    .append(System.lineSeparator());
         }
+        System.out.print(table); // one write for the whole table
+        span.end(0, points.size());
+    }
 
-        System.out.println("\n=== Transactions for Vendor: " + vendorName + " ===");
+    //CUSTOM SEARCH REPORT________________________
+    // Any combination of conditions, built with manager.query()
+    public void showQuery(String title, LedgerQuery query) {
+        LedgerMetrics.Span span = QUERY_REPORT.start();
+        List<Transaction> results = query.list(); // only the matching rows are read
+
+        System.out.println("\n=== " + title + " ===");
         manager.display(results);
+        System.out.println("Totals: " + query.totals());
+        span.end(results.size(), results.size());
     }
 }
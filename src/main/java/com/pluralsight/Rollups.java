@@ -0,0 +1,184 @@
+package com.pluralsight;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;//optimistic reads: report totals never wait on the writer
+import java.util.function.Supplier;
+
+// Running totals per day, month, year and vendor.
+// Updated as each transaction is added and rebuilt once at load, so report totals never need another pass
+// over the ledger. All sums are exact whole cents.
+// One thread adds; any thread can read. Reads are optimistic - they only retry (under a read lock)
+// if an add happened while they were summing, and they always hand back copies.
+// The store makes its adds and publishes its new View inside one write (see LedgerStore.add), so a read
+// never counts a row that getAll and the other views can't show yet.
+public class Rollups {
+
+    // Count and sums for one bucket (a day, a month, a year, a vendor or a whole period)
+    public static class Totals {
+        private long count;
+        private long depositCents; // sum of positive amounts
+        private long paymentCents; // sum of negative amounts (so it is zero or negative)
+
+        public Totals() {
+        }
+
+        Totals(long count, long depositCents, long paymentCents) {
+            this.count = count;
+            this.depositCents = depositCents;
+            this.paymentCents = paymentCents;
+        }
+
+        void add(long amountCents) {
+            count++;
+            if (amountCents > 0) {
+                depositCents += amountCents;
+            } else {
+                paymentCents += amountCents;
+            }
+        }
+
+        void add(Totals other) {
+            count += other.count;
+            depositCents += other.depositCents;
+            paymentCents += other.paymentCents;
+        }
+
+        Totals copy() {
+            Totals copy = new Totals();
+            copy.add(this);
+            return copy;
+        }
+
+        public long getCount() { return count; }
+        public long getDepositCents() { return depositCents; }
+        public long getPaymentCents() { return paymentCents; }
+        public long getNetCents() { return depositCents + paymentCents; }
+
+        public BigDecimal getDeposits() { return BigDecimal.valueOf(depositCents, 2); }
+        public BigDecimal getPayments() { return BigDecimal.valueOf(paymentCents, 2); }
+        public BigDecimal getNet() { return BigDecimal.valueOf(getNetCents(), 2); }
+
+        @Override
+        public String toString() {
+            return count + " transactions   Deposits: " + getDeposits() + "   Payments: " + getPayments()
+                    + "   Net: " + getNet();
+        }
+    }
+
+    private static final Totals EMPTY = new Totals();
+
+    private final StampedLock lock = new StampedLock();
+    private final ConcurrentHashMap<LocalDate, Totals> byDay = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<YearMonth, Totals> byMonth = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Totals> byYear = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Totals> byVendor = new ConcurrentHashMap<>(); // keyed by vendor id
+
+    // Buckets for the last date added - rows mostly arrive in date order, so this skips most map lookups
+    private LocalDate lastDate;
+    private Totals lastDay;
+    private Totals lastMonth;
+    private Totals lastYear;
+
+    // Oldest and newest dates added, so open or over-wide ranges only walk dates that have rows
+    private LocalDate oldest;
+    private LocalDate newest;
+
+    // ADD ONE TRANSACTION________________________
+    // Call inside write, or before anyone else can see this Rollups
+    public void add(Transaction t, int vendorId) {
+        long cents = t.getAmountCents();
+        LocalDate date = t.getDate();
+        if (!date.equals(lastDate)) {
+            lastDay = byDay.computeIfAbsent(date, d -> new Totals());
+            lastMonth = byMonth.computeIfAbsent(YearMonth.from(date), m -> new Totals());
+            lastYear = byYear.computeIfAbsent(date.getYear(), y -> new Totals());
+            lastDate = date;
+            if (oldest == null || date.isBefore(oldest)) {
+                oldest = date;
+            }
+            if (newest == null || date.isAfter(newest)) {
+                newest = date;
+            }
+        }
+        lastDay.add(cents);
+        lastMonth.add(cents);
+        lastYear.add(cents);
+        byVendor.computeIfAbsent(vendorId, v -> new Totals()).add(cents);
+    }
+
+    // Runs writer (its adds, and whatever else readers must see at the same moment) under the write lock
+    void write(Runnable writer) {
+        long stamp = lock.writeLock();
+        try {
+            writer.run();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            byDay.clear();
+            byMonth.clear();
+            byYear.clear();
+            byVendor.clear();
+            lastDate = null;
+            oldest = null;
+            newest = null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // LOOKUPS - O(1)______________________________
+    public Totals day(LocalDate date) { return read(() -> byDay.getOrDefault(date, EMPTY).copy()); }
+    public Totals month(YearMonth month) { return read(() -> byMonth.getOrDefault(month, EMPTY).copy()); }
+    public Totals year(int year) { return read(() -> byYear.getOrDefault(year, EMPTY).copy()); }
+    public Totals vendor(int vendorId) { return read(() -> byVendor.getOrDefault(vendorId, EMPTY).copy()); }
+
+    // Runs a read without locking, and again under the read lock only if an add got in the way
+    private Totals read(Supplier<Totals> sum) {
+        long stamp = lock.tryOptimisticRead();
+        Totals result = sum.get();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                result = sum.get();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    // Totals for start through end (inclusive; either may be null for an open end), built from whole years,
+    // whole months and the odd days at the edges - at most a few dozen lookups however long the period is,
+    // never a pass over the ledger. The ends are first closed in to the oldest and newest dates added.
+    public Totals between(LocalDate start, LocalDate end) {
+        return read(() -> {
+            Totals sum = new Totals();
+            if (oldest == null) {
+                return sum;
+            }
+            LocalDate date = start == null || start.isBefore(oldest) ? oldest : start;
+            LocalDate last = end == null || end.isAfter(newest) ? newest : end;
+            while (!date.isAfter(last)) {
+                if (date.getDayOfYear() == 1 && !date.plusYears(1).minusDays(1).isAfter(last)) {
+                    sum.add(byYear.getOrDefault(date.getYear(), EMPTY));
+                    date = date.plusYears(1);
+                } else if (date.getDayOfMonth() == 1 && !date.plusMonths(1).minusDays(1).isAfter(last)) {
+                    sum.add(byMonth.getOrDefault(YearMonth.from(date), EMPTY));
+                    date = date.plusMonths(1);
+                } else {
+                    sum.add(byDay.getOrDefault(date, EMPTY));
+                    date = date.plusDays(1);
+                }
+            }
+            return sum;
+        });
+    }
+}
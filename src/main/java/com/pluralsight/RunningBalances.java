@@ -0,0 +1,61 @@
+package com.pluralsight;
+
+// Running balance after each row of a LedgerStore, in cents: through(i) is the sum of the amounts of rows
+// 0..i in the store's date order. Kept next to the rows and updated with them, so the balance on any date
+// is one binary search for the date's last row plus one array read.
+//
+// Same rules as LedgerRows: one writer, any number of readers through snapshot(). Appending the newest row
+// writes one slot past the size; a row inserted earlier changes every later sum, so the array is copied.
+public class RunningBalances {
+
+    private long[] sums;
+    private int size;
+    private final boolean readOnly;
+
+    public RunningBalances() {
+        this(new long[16], 0, false);
+    }
+
+    private RunningBalances(long[] sums, int size, boolean readOnly) {
+        this.sums = sums;
+        this.size = size;
+        this.readOnly = readOnly;
+    }
+
+    public int size() { return size; }
+
+    // Balance after the row at position (0 before the first row is not stored - see Balances)
+    public long through(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException(position);
+        }
+        return sums[position];
+    }
+
+    // A row of amountCents was inserted at position (the same position as in the rows)
+    public void insert(int position, long amountCents) {
+        if (readOnly) {
+            throw new UnsupportedOperationException("snapshot balances are read-only");
+        }
+        if (position < 0 || position > size) {
+            throw new IndexOutOfBoundsException(position);
+        }
+        long before = position == 0 ? 0 : sums[position - 1];
+        if (position < size || size == sums.length) {
+            // Copy instead of changing in place - snapshots may still be reading the old sums
+            long[] copy = new long[size == sums.length ? size * 2 : sums.length];
+            System.arraycopy(sums, 0, copy, 0, position);
+            for (int i = position; i < size; i++) {
+                copy[i + 1] = sums[i] + amountCents; // every later balance moves by the new amount
+            }
+            sums = copy;
+        }
+        sums[position] = before + amountCents;
+        size++;
+    }
+
+    // A read-only copy of the sums as they are now; costs O(1)
+    public RunningBalances snapshot() {
+        return new RunningBalances(sums, size, true);
+    }
+}
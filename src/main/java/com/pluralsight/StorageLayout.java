@@ -0,0 +1,7 @@
+package com.pluralsight;
+
+// How LedgerStore keeps its rows in memory
+public enum StorageLayout {
+    ROWS,     // one Transaction object per row
+    COLUMNAR  // primitive arrays per field; Transaction objects are only built when a row is read
+}
@@ -0,0 +1,8 @@
+package com.pluralsight;
+
+// Controls when appended transactions are forced (fsync'd) to disk by the TransactionJournal
+public enum SyncPolicy {
+    ALWAYS, // force after every single append - safest, slowest
+    GROUP,  // group commit: force once per batch of appends or after a short delay
+    NEVER   // leave flushing to the operating system
+}
@@ -0,0 +1,374 @@
+package com.pluralsight;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Inverted index over the words of every description and vendor name in a LedgerStore.
+// Words are runs of letters and digits, case folded, so "Invoice #1001 paid" is indexed as invoice, 1001, paid.
+// Each word maps to the sorted store positions of the rows that contain it. A search such as "invoice 1001"
+// intersects the lists of its words (AND), smallest first; a word ending in * matches every indexed word
+// starting with it ("key*" finds keyboard and keys). Only the matching rows are ever read.
+//
+// The positions have to match the store's rows, and searches never wait on the writer. A row added on the
+// end only appends past what any search can see: each word's list is swapped for a new Entry sharing the
+// array, and a search drops positions past the rows of the View it runs on. A row inserted further back
+// moves other rows' positions, so the writer builds a shifted copy off to the side and the store publishes
+// that with its next View - searches still on the old View keep reading the old index, which never changes.
+public class TextIndex {
+
+    private static final int CHUNK_ROWS = 64 * 1024; // rows tokenized per task when building in parallel
+
+    // Sorted, so a prefix is one subMap; safe to read while the writer puts new entries
+    private final ConcurrentSkipListMap<String, Entry> words;
+    private boolean published; // searches may be reading it (writer's field, set by publish)
+
+    public TextIndex() {
+        words = new ConcurrentSkipListMap<>();
+    }
+
+    // Starts with the same entries as words (copied in one pass, since they are already sorted)
+    private TextIndex(ConcurrentSkipListMap<String, Entry> words) {
+        this.words = new ConcurrentSkipListMap<>(words);
+    }
+
+    // Sorted positions of the rows containing one word.
+    // Changed in place only while building; once searches can see it, it is replaced instead (see append).
+    private static class Entry {
+        int[] positions;
+        int size;
+
+        Entry() {
+            this(new int[2], 0);
+        }
+
+        Entry(int[] positions, int size) {
+            this.positions = positions;
+            this.size = size;
+        }
+
+        void add(int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+
+        void addAll(Entry other) {
+            if (size + other.size > positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.positions, 0, positions, size, other.size);
+            size += other.size;
+        }
+
+        // Inserts keeping the list sorted - normally position is the largest and goes on the end
+        void insert(int position) {
+            int at = size;
+            while (at > 0 && positions[at - 1] > position) {
+                at--;
+            }
+            add(position);
+            System.arraycopy(positions, at, positions, at + 1, size - 1 - at);
+            positions[at] = position;
+        }
+
+        // A new Entry with position (the largest yet) on the end. The array is shared, and written only
+        // past size, which no search holding this Entry reads.
+        Entry append(int position) {
+            int[] array = size == positions.length ? Arrays.copyOf(positions, size * 2) : positions;
+            array[size] = position;
+            return new Entry(array, size + 1);
+        }
+
+        // The same list cut to the positions below rowCount
+        Entry below(int rowCount) {
+            if (size == 0 || positions[size - 1] < rowCount) {
+                return this;
+            }
+            int cut = Arrays.binarySearch(positions, 0, size, rowCount);
+            return new Entry(positions, cut >= 0 ? cut : -cut - 1);
+        }
+
+        boolean contains(int position) {
+            return Arrays.binarySearch(positions, 0, size, position) >= 0;
+        }
+    }
+
+    // BUILD______________________________________
+    // Indexes rows (in store order) in parallel chunks, then joins the chunks' lists in order so they stay sorted
+    public static TextIndex build(List<Transaction> rows) {
+        int chunks = (rows.size() + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        List<HashMap<String, Entry>> parts = IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> {
+                    HashMap<String, Entry> part = new HashMap<>();
+                    HashMap<String, Entry[]> seen = new HashMap<>(); // text -> its words' entries; texts repeat a lot
+                    ArrayList<String> tokens = new ArrayList<>();
+                    int end = Math.min(rows.size(), (chunk + 1) * CHUNK_ROWS);
+                    for (int position = chunk * CHUNK_ROWS; position < end; position++) {
+                        Transaction t = rows.get(position);
+                        Entry[] description = entriesOf(t.getDescription(), part, seen, tokens);
+                        Entry[] vendor = entriesOf(t.getVendor(), part, seen, tokens);
+                        for (Entry entry : description) {
+                            entry.add(position);
+                        }
+                        for (Entry entry : vendor) {
+                            if (entry.size == 0 || entry.positions[entry.size - 1] != position) { // word also in the description
+                                entry.add(position);
+                            }
+                        }
+                    }
+                    return part;
+                })
+                .collect(Collectors.toList());
+
+        TextIndex index = new TextIndex();
+        for (HashMap<String, Entry> part : parts) {
+            for (Map.Entry<String, Entry> word : part.entrySet()) {
+                Entry entry = index.words.get(word.getKey());
+                if (entry == null) {
+                    index.words.put(word.getKey(), word.getValue());
+                } else {
+                    entry.addAll(word.getValue());
+                }
+            }
+        }
+        return index;
+    }
+
+    // The entries of text's words in part, worked out once per distinct text
+    private static Entry[] entriesOf(String text, HashMap<String, Entry> part, HashMap<String, Entry[]> seen,
+                                     ArrayList<String> tokens) {
+        Entry[] entries = seen.get(text);
+        if (entries == null) {
+            tokens.clear();
+            tokenize(text, tokens);
+            entries = new Entry[tokens.size()];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = part.computeIfAbsent(tokens.get(i), w -> new Entry());
+            }
+            seen.put(text, entries);
+        }
+        return entries;
+    }
+
+    // ADD ONE ROW________________________________
+    // t was inserted at position; rows at or after it moved up by one unless it went on the end.
+    // Returns the index to publish. A row on the end is appended to this one. Otherwise, once searches
+    // can see this index (see publish), the shifted lists go into a copy instead - several rows inserted
+    // before the next publish share that copy. Only the store's writer calls this.
+    TextIndex insert(int position, Transaction t, boolean atEnd) {
+        ArrayList<String> tokens = new ArrayList<>();
+        tokensOf(t, tokens);
+        if (atEnd) {
+            for (String token : tokens) {
+                Entry entry = words.get(token);
+                words.put(token, entry == null ? new Entry().append(position) : entry.append(position));
+            }
+            return this;
+        }
+        // Entries are never changed in place, so the copy can share those with nothing at or after position
+        TextIndex target = published ? new TextIndex(words) : this;
+        for (Map.Entry<String, Entry> word : words.entrySet()) {
+            Entry entry = word.getValue();
+            boolean token = tokens.contains(word.getKey());
+            if (!token && (entry.size == 0 || entry.positions[entry.size - 1] < position)) {
+                continue;
+            }
+            int[] shifted = Arrays.copyOf(entry.positions, entry.size + 1); // room for position
+            for (int i = entry.size - 1; i >= 0 && shifted[i] >= position; i--) {
+                shifted[i]++;
+            }
+            Entry moved = new Entry(shifted, entry.size);
+            if (token) {
+                moved.insert(position);
+            }
+            target.words.put(word.getKey(), moved);
+        }
+        for (String token : tokens) {
+            if (!words.containsKey(token)) {
+                target.words.put(token, new Entry().append(position));
+            }
+        }
+        return target;
+    }
+
+    // Called by the store as it publishes a View holding this index; from then on it is only appended to
+    void publish() {
+        published = true;
+    }
+
+    // SEARCH_____________________________________
+    // Sorted positions of the rows containing every word of query. rowCount is the size of the View
+    // being searched; positions from later appends are left out.
+    int[] search(String query, int rowCount) {
+        // Each word of the query becomes the list of index entries it matches
+        ArrayList<List<Entry>> terms = new ArrayList<>();
+        ArrayList<String> tokens = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")) {
+            boolean prefix = word.endsWith("*");
+            tokenize(prefix ? word.substring(0, word.length() - 1) : word, tokens);
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                List<Entry> matches;
+                if (prefix && i == tokens.size() - 1) {
+                    matches = new ArrayList<>();
+                    for (Entry entry : words.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+                        Entry seen = entry.below(rowCount);
+                        if (seen.size > 0) {
+                            matches.add(seen);
+                        }
+                    }
+                } else {
+                    Entry entry = words.get(token);
+                    Entry seen = entry == null ? null : entry.below(rowCount);
+                    matches = seen == null || seen.size == 0 ? List.of() : List.of(seen);
+                }
+                if (matches.isEmpty()) {
+                    return new int[0]; // a word nobody has - nothing can match all of them
+                }
+                terms.add(matches);
+            }
+            tokens.clear();
+        }
+        if (terms.isEmpty()) {
+            return new int[0];
+        }
+
+        // Start from the rarest word, then keep only the positions every other word also has
+        terms.sort(Comparator.comparingLong(TextIndex::rows));
+        int[] result = union(terms.get(0));
+        int count = result.length;
+        for (int t = 1; t < terms.size() && count > 0; t++) {
+            List<Entry> term = terms.get(t);
+            if (term.size() == 1) {
+                count = intersect(result, count, term.get(0).positions, term.get(0).size);
+                continue;
+            }
+            // A prefix matching many words: look each remaining position up, or join the words' lists first
+            if ((long) count * term.size() * 16 < rows(term)) {
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    for (Entry entry : term) {
+                        if (entry.contains(result[i])) {
+                            result[kept++] = result[i];
+                            break;
+                        }
+                    }
+                }
+                count = kept;
+            } else {
+                int[] other = union(term);
+                count = intersect(result, count, other, other.length);
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    // Keeps the positions in result[0, count) that are also in other[0, size); both sorted. Walks forward
+    // through other with galloping steps, so a short list against a long one costs little more than the short one.
+    private static int intersect(int[] result, int count, int[] other, int size) {
+        int kept = 0;
+        int at = 0;
+        for (int i = 0; i < count && at < size; i++) {
+            int target = result[i];
+            int step = 1;
+            int low = at;
+            while (at < size && other[at] < target) {
+                low = at;
+                at += step;
+                step <<= 1;
+            }
+            int high = Math.min(at, size - 1);
+            int found = Arrays.binarySearch(other, low, high + 1, target);
+            if (found >= 0) {
+                result[kept++] = target;
+                at = found + 1;
+            } else {
+                at = -found - 1;
+            }
+        }
+        return kept;
+    }
+
+    private static long rows(List<Entry> entries) {
+        long rows = 0;
+        for (Entry entry : entries) {
+            rows += entry.size;
+        }
+        return rows;
+    }
+
+    // Sorted positions in any of entries (a row can be in several words of a prefix, so duplicates are dropped)
+    private static int[] union(List<Entry> entries) {
+        if (entries.size() == 1) {
+            return Arrays.copyOf(entries.get(0).positions, entries.get(0).size);
+        }
+        // Merge the lists in pairs, round after round, so each position is copied about log(words) times
+        ArrayList<int[]> lists = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            lists.add(Arrays.copyOf(entry.positions, entry.size));
+        }
+        while (lists.size() > 1) {
+            ArrayList<int[]> merged = new ArrayList<>((lists.size() + 1) / 2);
+            for (int i = 0; i + 1 < lists.size(); i += 2) {
+                merged.add(merge(lists.get(i), lists.get(i + 1)));
+            }
+            if (lists.size() % 2 == 1) {
+                merged.add(lists.get(lists.size() - 1));
+            }
+            lists = merged;
+        }
+        return lists.get(0);
+    }
+
+    // Sorted union of two sorted lists, without duplicates
+    private static int[] merge(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length || j < b.length) {
+            int next = j == b.length || (i < a.length && a[i] <= b[j]) ? a[i] : b[j];
+            if (i < a.length && a[i] == next) {
+                i++;
+            }
+            if (j < b.length && b[j] == next) {
+                j++;
+            }
+            out[size++] = next;
+        }
+        return size == out.length ? out : Arrays.copyOf(out, size);
+    }
+
+    // TOKENIZE___________________________________
+    // The distinct words of a row's description and vendor, into tokens (cleared first)
+    private static void tokensOf(Transaction t, ArrayList<String> tokens) {
+        tokens.clear();
+        tokenize(t.getDescription(), tokens);
+        tokenize(t.getVendor(), tokens);
+    }
+
+    // Adds each run of letters and digits in text, case folded like VendorDictionary.normalize, if not already there
+    static void tokenize(String text, ArrayList<String> tokens) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(Character.toUpperCase(c)));
+            } else if (word.length() > 0) {
+                String token = word.toString();
+                if (!tokens.contains(token)) {
+                    tokens.add(token);
+                }
+                word.setLength(0);
+            }
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package com.pluralsight;
 import java.math.BigDecimal;//avoid rounding errors with float and doubles
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;//Formatting time when saving to CSV
 
 public class Transaction {
         private LocalDate date;
@@ -10,6 +10,7 @@ public class Transaction {
         private String description;
         private String vendor;
         private BigDecimal amount;
+        private long amountCents; // the amount in whole cents, for fast totals (see centsOf)
 
         // Constructor to create a new transaction
         public Transaction(LocalDate date, LocalTime time, String description, String vendor, BigDecimal amount) {
@@ -18,56 +19,86 @@ public class Transaction {
             this.description = description;
             this.vendor = vendor;
             this.amount = amount;
+            this.amountCents = centsOf(amount);
+        }
+
+        // The amount kept for totals, balances and indexes. Whole-cent amounts are exact; an amount with a
+        // fraction of a cent (e.g. a -0.005 fee in an old file) is rounded away from zero to the next cent,
+        // so it still counts as a deposit or payment. getAmount() and the CSV always keep the exact value.
+        // Only amounts too large for a long number of cents are refused.
+        public static long centsOf(BigDecimal amount) {
+            try {
+                return amount.movePointRight(2).setScale(0, RoundingMode.UP).longValueExact();
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("amount is too large: " + amount);
+            }
+        }
+
+        // New amounts typed in or posted must be whole cents (at most 2 decimal places once trailing zeros are dropped)
+        public static long toCents(BigDecimal amount) {
+            try {
+                return amount.movePointRight(2).longValueExact();
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("amount must be a whole number of cents: " + amount);
+            }
         }
 
         // Getter methods for getting private fields
         public LocalDate getDate() { return date; }
         public LocalTime getTime() { return time; }
+        public String getDescription() { return description; }
         public String getVendor() { return vendor; }
         public BigDecimal getAmount() { return amount; }
+        public long getAmountCents() { return amountCents; }
 
         // Converts transaction into a CSV string to be saved in csv file
         public String toCSV() {
-            return date + "|" + time.format(DateTimeFormatter.ofPattern("HH:mm:ss")) +
-                    "|" + description + "|" + vendor + "|" + amount;
+            return TransactionCodec.format(this); // date|time|description|vendor|amount
         }
 
         // Reads a transaction from a CSV line and creates a Transaction object
         public static com.pluralsight.Transaction fromCSV(String line) {
-            String[] parts = line.split("\\|");
-            return new com.pluralsight.Transaction(
-                    LocalDate.parse(parts[0]),         // date (e.g., 2023-04-15)
-                    LocalTime.parse(parts[1]),         // time (e.g., 10:13:25)
-                    parts[2],                          // description
-                    parts[3],                          // vendor
-                    new BigDecimal(parts[4])           // amount
-            );
+            return TransactionCodec.parse(line);
         }
 
         // Custom display method
         public String displayTransaction() {
-            // Shorten long descriptions to 25 characters max
-            String desc = description.length() > 25
-                    ? description.substring(0, 22) + "..."
-                    : description;
-
-            // Pad shorter descriptions with spaces
-            while (desc.length() < 25) {
-                desc += " ";
-            }
+            return appendDisplay(new StringBuilder(80)).toString();
+        }
 
-            // Shorten vendor names longer than 15 characters
-            String vend = vendor.length() > 15
-                    ? vendor.substring(0, 12) + "..."
-                    : vendor;
+        // Appends the display row to out - fixed-width columns written straight into the builder, so a
+        // renderer can reuse one builder for every row instead of building padded Strings
+        public StringBuilder appendDisplay(StringBuilder out) {
+            TransactionCodec.appendDate(out, date);
+            out.append("  ");
+            TransactionCodec.appendTime(out, time); // always HH:mm:ss so the columns line up
+            out.append("  ");
+            appendColumn(out, description, 25); // Shorten long descriptions to 25 characters max
+            out.append("  ");
+            appendColumn(out, vendor, 15);      // Shorten vendor names longer than 15 characters
+            out.append("  ");
 
-            // Pad shorter vendor names with spaces
-            while (vend.length() < 15) {
-                vend += " ";
+            // formats the amount with two decimals, straight from the whole cents
+            if (amount.scale() > 2 && BigDecimal.valueOf(amountCents, 2).compareTo(amount) != 0) {
+                return out.append(amount.toPlainString()); // a fraction of a cent - show it as it is
             }
+            long cents = Math.abs(amountCents);
+            if (amountCents < 0) {
+                out.append('-');
+            }
+            out.append(cents / 100).append('.');
+            return out.append((char) ('0' + cents % 100 / 10)).append((char) ('0' + cents % 10));
+        }
 
-            // formats transaction into table-like string
-            return date + "  " + time + "  " + desc + "  " + vend + "  " + String.format("%.2f", amount);
+        // Text cut to width (ending in "...") or padded with spaces up to width
+        private static void appendColumn(StringBuilder out, String text, int width) {
+            if (text.length() > width) {
+                out.append(text, 0, width - 3).append("...");
+                return;
+            }
+            out.append(text);
+            for (int i = text.length(); i < width; i++) {
+                out.append(' ');
+            }
         }
     }
-
@@ -0,0 +1,247 @@
+package com.pluralsight;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Hand-rolled reader/writer for the pipe-delimited transaction format:
+//   date|time|description|vendor|amount   e.g. 2023-04-15|10:13:25|ergonomic keyboard|Amazon|-89.50
+// Dates, times and amounts are read digit by digit instead of going through split() and the
+// general-purpose parsers, and rows are written into a caller-supplied StringBuilder.
+// Anything unusual falls back to LocalDate/LocalTime/BigDecimal parsing so files that loaded before still load.
+public final class TransactionCodec {
+
+    private static final int MAX_FAST_DIGITS = 18; // digits that always fit in a long
+
+    private TransactionCodec() {
+    }
+
+    // PARSE______________________________________
+    public static Transaction parse(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return parse(bytes, 0, bytes.length);
+    }
+
+    // Parses the line held in bytes[start, end) - no line String is created
+    public static Transaction parse(byte[] bytes, int start, int end) {
+        return parse(bytes, start, end, null);
+    }
+
+    // Same, sharing the vendor name through the dictionary when one is given
+    public static Transaction parse(byte[] bytes, int start, int end, VendorDictionary vendors) {
+        int dateEnd = requirePipe(bytes, start, end);
+        int timeEnd = requirePipe(bytes, dateEnd + 1, end);
+        int descriptionEnd = requirePipe(bytes, timeEnd + 1, end);
+        int vendorEnd = requirePipe(bytes, descriptionEnd + 1, end);
+        int amountEnd = indexOfPipe(bytes, vendorEnd + 1, end);
+        if (amountEnd < 0) {
+            amountEnd = end; // any fields after the amount are ignored, as they always have been
+        }
+
+        String vendor = new String(bytes, descriptionEnd + 1, vendorEnd - descriptionEnd - 1, StandardCharsets.UTF_8);
+        return new Transaction(
+                parseDate(bytes, start, dateEnd),
+                parseTime(bytes, dateEnd + 1, timeEnd),
+                new String(bytes, timeEnd + 1, descriptionEnd - timeEnd - 1, StandardCharsets.UTF_8),
+                vendors == null ? vendor : vendors.intern(vendor),
+                parseAmount(bytes, vendorEnd + 1, amountEnd)
+        );
+    }
+
+    // COMMA-SEPARATED (IMPORTS)__________________
+    // date,time,description,vendor,amount - a field may be wrapped in double quotes (with "" for a quote)
+    // so it can hold commas. Fields that the ledger can't store ('|') are rejected here, where the
+    // loader reports them with their line number.
+    public static Transaction parseCommaSeparated(byte[] bytes, int start, int end, VendorDictionary vendors) {
+        int[] bounds = new int[10]; // start and end of each of the five fields, quotes excluded
+        boolean[] quoted = new boolean[5];
+        int at = start;
+        for (int field = 0; field < 5; field++) {
+            if (at > end) {
+                throw new IllegalArgumentException("expected date,time,description,vendor,amount");
+            }
+            if (at < end && bytes[at] == '"') {
+                quoted[field] = true;
+                int close = at + 1;
+                while (close < end && !(bytes[close] == '"' && (close + 1 == end || bytes[close + 1] != '"'))) {
+                    close += bytes[close] == '"' ? 2 : 1; // skip "" pairs
+                }
+                if (close >= end) {
+                    throw new IllegalArgumentException("unterminated quoted field");
+                }
+                bounds[field * 2] = at + 1;
+                bounds[field * 2 + 1] = close;
+                at = close + 1;
+                if (at < end && bytes[at] != ',') {
+                    throw new IllegalArgumentException("text after a quoted field");
+                }
+            } else {
+                int comma = at;
+                while (comma < end && bytes[comma] != ',') {
+                    comma++;
+                }
+                bounds[field * 2] = at;
+                bounds[field * 2 + 1] = comma;
+                at = comma;
+            }
+            at++; // past the comma; any fields after the amount are ignored, like the pipe format
+        }
+
+        String description = field(bytes, bounds, quoted, 2);
+        String vendor = field(bytes, bounds, quoted, 3);
+        if (description.indexOf('|') >= 0 || vendor.indexOf('|') >= 0) {
+            throw new IllegalArgumentException("description and vendor cannot contain '|'");
+        }
+        return new Transaction(
+                parseDate(bytes, bounds[0], bounds[1]),
+                parseTime(bytes, bounds[2], bounds[3]),
+                description,
+                vendors == null ? vendor : vendors.intern(vendor),
+                parseAmount(bytes, bounds[8], bounds[9])
+        );
+    }
+
+    // Text of one comma-separated field, turning "" back into " in quoted fields
+    private static String field(byte[] bytes, int[] bounds, boolean[] quoted, int field) {
+        String text = text(bytes, bounds[field * 2], bounds[field * 2 + 1]);
+        return quoted[field] ? text.replace("\"\"", "\"") : text;
+    }
+
+    private static int requirePipe(byte[] bytes, int from, int end) {
+        int pipe = indexOfPipe(bytes, from, end);
+        if (pipe < 0) {
+            throw new IllegalArgumentException("expected date|time|description|vendor|amount");
+        }
+        return pipe;
+    }
+
+    // Index of the next '|' in [from, end), or -1
+    private static int indexOfPipe(byte[] bytes, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (bytes[i] == '|') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // yyyy-MM-dd
+    static LocalDate parseDate(byte[] bytes, int start, int end) {
+        if (end - start == 10 && bytes[start + 4] == '-' && bytes[start + 7] == '-') {
+            int year = digits(bytes, start, 4);
+            int month = digits(bytes, start + 5, 2);
+            int day = digits(bytes, start + 8, 2);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                return LocalDate.of(year, month, day); // still rejects 2023-02-30 and friends
+            }
+        }
+        return LocalDate.parse(text(bytes, start, end));
+    }
+
+    // HH:mm or HH:mm:ss
+    static LocalTime parseTime(byte[] bytes, int start, int end) {
+        int length = end - start;
+        if ((length == 5 || length == 8) && bytes[start + 2] == ':') {
+            int hour = digits(bytes, start, 2);
+            int minute = digits(bytes, start + 3, 2);
+            int second = length == 8 && bytes[start + 5] == ':' ? digits(bytes, start + 6, 2) : length == 5 ? 0 : -1;
+            if (hour >= 0 && minute >= 0 && second >= 0) {
+                return LocalTime.of(hour, minute, second);
+            }
+        }
+        return LocalTime.parse(text(bytes, start, end));
+    }
+
+    // [+|-]digits[.digits] read straight into an unscaled long and a scale
+    static BigDecimal parseAmount(byte[] bytes, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+
+        long unscaled = 0;
+        int digitCount = 0;
+        int scale = 0;
+        boolean seenPoint = false;
+        for (; i < end; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                unscaled = unscaled * 10 + (b - '0');
+                digitCount++;
+                if (seenPoint) {
+                    scale++;
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break; // exponents, spaces, junk - let BigDecimal decide
+            }
+        }
+
+        if (i == end && digitCount > 0 && digitCount <= MAX_FAST_DIGITS) {
+            return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+        }
+        return new BigDecimal(text(bytes, start, end));
+    }
+
+    // Reads count ASCII digits, or returns -1 if any of them isn't a digit
+    private static int digits(byte[] bytes, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static String text(byte[] bytes, int start, int end) {
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    // FORMAT_____________________________________
+    public static String format(Transaction t) {
+        return appendCSV(t, new StringBuilder(64)).toString();
+    }
+
+    // Appends one CSV line (without the line break) to out, so callers can reuse a single builder
+    public static StringBuilder appendCSV(Transaction t, StringBuilder out) {
+        appendDate(out, t.getDate());
+        out.append('|');
+        appendTime(out, t.getTime());
+        out.append('|').append(t.getDescription());
+        out.append('|').append(t.getVendor());
+        out.append('|').append(t.getAmount().toString()); // BigDecimal caches its own string
+        return out;
+    }
+
+    static void appendDate(StringBuilder out, LocalDate date) {
+        int year = date.getYear();
+        if (year < 1000 || year > 9999) {
+            out.append(date); // rare - let LocalDate handle padding and signs
+            return;
+        }
+        out.append(year).append('-');
+        appendTwoDigits(out, date.getMonthValue());
+        out.append('-');
+        appendTwoDigits(out, date.getDayOfMonth());
+    }
+
+    // Always HH:mm:ss, dropping any fraction of a second
+    static void appendTime(StringBuilder out, LocalTime time) {
+        appendTwoDigits(out, time.getHour());
+        out.append(':');
+        appendTwoDigits(out, time.getMinute());
+        out.append(':');
+        appendTwoDigits(out, time.getSecond());
+    }
+
+    private static void appendTwoDigits(StringBuilder out, int value) {
+        out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
@@ -0,0 +1,328 @@
+package com.pluralsight;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;//lets callers decide how to report a failed write
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;//append channel we can force() to disk
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Append-only journal over the transactions CSV file.
+// New rows are appended to the end of the file instead of rewriting the whole ledger,
+// and the file is only rewritten (compacted) when it is not in a clean state.
+// Every append goes to the write-ahead log (transactions.csv.wal) before the CSV, and syncing forces the
+// log rather than the CSV. If the app is killed mid-write, the next start replays the log so the CSV ends
+// with whole, committed rows (see WriteAheadLog). The log is checkpointed - the CSV forced and the log
+// started over - whenever it grows past CHECKPOINT_BYTES, and removed on a clean close.
+public class TransactionJournal implements Closeable {
+
+    private static final int GROUP_COMMIT_SIZE = 64;      // force to disk after this many unsynced appends...
+    private static final long GROUP_COMMIT_MILLIS = 200;  // ...or after this many milliseconds, whichever comes first
+    private static final int WRITE_SLICE = 32 * 1024;     // characters encoded and written at a time by appendAll
+    private static final long CHECKPOINT_BYTES = 4 * 1024 * 1024; // start a new write-ahead log past this size
+
+    private final Path path;
+    private final String header;
+    private final SyncPolicy syncPolicy;
+    private final ScheduledExecutorService background; // runs group commits and compaction off the menu thread
+    private final WriteAheadLog.Recovery recovery; // what replaying the log from an unclean exit did
+    private FileChannel channel;
+    private WriteAheadLog wal;
+    private boolean endsWithLineBreak; // false when the last line in the file has no line break yet
+    private int unsynced;              // appends written but not yet forced to disk
+    private boolean compactionScheduled;
+    private final StringBuilder lineBuilder = new StringBuilder(128);         // reused for every append
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private ByteBuffer encoded = ByteBuffer.allocateDirect(512);              // reused for every append
+
+    //CONSTRUCTOR______________
+    public TransactionJournal(Path path, String header, SyncPolicy syncPolicy) throws IOException {
+        this.path = path;
+        this.header = header;
+        this.syncPolicy = syncPolicy;
+        recovery = WriteAheadLog.recover(WriteAheadLog.pathFor(path), path); // before anything else touches the CSV
+        open();
+
+        background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-journal");
+            thread.setDaemon(true); // never keeps the app alive on exit
+            return thread;
+        });
+        if (syncPolicy == SyncPolicy.GROUP) {
+            background.scheduleWithFixedDelay(this::syncQuietly, GROUP_COMMIT_MILLIS, GROUP_COMMIT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // OPEN THE FILE FOR APPENDING___________
+    private void open() throws IOException {
+        endsWithLineBreak = true;
+        if (Files.exists(path) && Files.size(path) > 0) {
+            // Check the last byte so the first append doesn't glue itself onto an unterminated last line
+            try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                reader.read(last, reader.size() - 1);
+                endsWithLineBreak = last.get(0) == '\n';
+            }
+        }
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() == 0) {
+            write((header + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        }
+        // The log only covers what comes after this point, so what is already here must be on disk
+        channel.force(false);
+        wal = WriteAheadLog.create(WriteAheadLog.pathFor(path), channel.size());
+    }
+
+    public WriteAheadLog.Recovery getRecovery() {
+        return recovery;
+    }
+
+    // APPEND ONE TRANSACTION_____________________
+    public synchronized void append(Transaction transaction) throws IOException {
+        appendAll(List.of(transaction));
+    }
+
+    // APPEND A BATCH_____________________________
+    // Writes every row and makes one sync decision for the whole batch. Large batches are encoded in
+    // slices so the buffers stay small; if any write fails the file is cut back to where the batch began,
+    // so a batch is either all in the file or not in it at all. Returns the bytes added to the CSV.
+    public synchronized long appendAll(List<Transaction> transactions) throws IOException {
+        if (transactions.isEmpty()) {
+            return 0;
+        }
+        long before = channel.size();
+        boolean hadLineBreak = endsWithLineBreak;
+        try {
+            // Format into the reused builder and encoder instead of allocating a new line each time
+            lineBuilder.setLength(0);
+            if (!endsWithLineBreak) {
+                lineBuilder.append(System.lineSeparator()); // terminate the previous line first
+            }
+            for (Transaction transaction : transactions) {
+                TransactionCodec.appendCSV(transaction, lineBuilder).append(System.lineSeparator());
+                if (lineBuilder.length() >= WRITE_SLICE) {
+                    writeBuilder(false);
+                }
+            }
+            writeBuilder(true); // the log record that marks the batch complete
+        } catch (IOException e) {
+            lineBuilder.setLength(0);
+            try {
+                channel.truncate(before);
+                endsWithLineBreak = hadLineBreak;
+                checkpoint(); // the log may hold part of this batch, so start it over from here
+            } catch (IOException truncateFailed) {
+                // A partial line may now sit at the end of the file, so start fresh and have it cleaned up
+                endsWithLineBreak = false;
+                scheduleCompaction();
+            }
+            throw e;
+        }
+        endsWithLineBreak = true;
+        unsynced += transactions.size();
+
+        if (syncPolicy == SyncPolicy.ALWAYS || (syncPolicy == SyncPolicy.GROUP && unsynced >= GROUP_COMMIT_SIZE)) {
+            sync();
+        }
+        return channel.size() - before;
+    }
+
+    // Logs whatever is in lineBuilder, then writes it to the CSV and empties it
+    private void writeBuilder(boolean endsBatch) throws IOException {
+        ByteBuffer buffer = encode(lineBuilder);
+        lineBuilder.setLength(0);
+        wal.append(channel.size(), buffer, endsBatch);
+        LedgerMetrics.CSV_BYTES_WRITTEN.add(buffer.remaining());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // Encodes the line into the reusable buffer, growing it for unusually long lines
+    private ByteBuffer encode(CharSequence text) {
+        int needed = (int) (text.length() * encoder.maxBytesPerChar()) + 1;
+        if (encoded.capacity() < needed) {
+            encoded = ByteBuffer.allocateDirect(Math.max(needed, encoded.capacity() * 2));
+        }
+        encoded.clear();
+        encoder.reset();
+        encoder.encode(CharBuffer.wrap(text), encoded, true);
+        encoder.flush(encoded);
+        return encoded.flip();
+    }
+
+    // FORCE PENDING APPENDS TO DISK____________
+    // Forcing the log is enough - whatever the CSV is missing after a crash is replayed from it
+    public synchronized void sync() throws IOException {
+        if (unsynced > 0) {
+            wal.force();
+            LedgerMetrics.SYNCS.increment();
+            unsynced = 0;
+            if (wal.size() >= CHECKPOINT_BYTES) {
+                checkpoint();
+            }
+        }
+    }
+
+    // Forces the CSV, then replaces the log with an empty one (written to a temp file and renamed over it)
+    private void checkpoint() throws IOException {
+        channel.force(false);
+        LedgerMetrics.CHECKPOINTS.increment();
+        wal.close();
+        wal = WriteAheadLog.create(WriteAheadLog.pathFor(path), channel.size());
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            System.out.println("Error syncing CSV: " + e.getMessage());
+        }
+    }
+
+    // COMPACTION_____________________________
+    // Asks the background thread to rewrite the file into its clean form (single header, no blank or broken lines)
+    public synchronized void scheduleCompaction() {
+        if (compactionScheduled || background.isShutdown()) {
+            return;
+        }
+        compactionScheduled = true;
+        background.execute(this::compactQuietly);
+    }
+
+    // Returns once a compaction that has already been scheduled has finished, e.g. before a snapshot
+    // records the CSV's size - otherwise the rewrite could land after it and make the snapshot stale
+    public void awaitCompaction() {
+        try {
+            background.submit(() -> { }).get(); // one background thread, so this runs after the compaction
+        } catch (RejectedExecutionException e) {
+            // closing - close() has already waited for the background thread
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException e) {
+            System.out.println("Error compacting CSV: " + e.getMessage());
+        }
+    }
+
+    // Streams the current file into a temp file without its blank lines and stray headers, then swaps it in
+    // atomically. Every other line is kept exactly as it was, even one that doesn't parse - those are records
+    // the loader reports at startup for someone to fix, and compaction must never be the thing that loses them.
+    public synchronized void compact() throws IOException {
+        compactionScheduled = false;
+        sync();
+        channel.force(false); // everything in the log is now in the CSV, and the CSV is about to change
+        wal.delete();
+        channel.close();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedReader reader = Files.newBufferedReader(path);
+             BufferedWriter writer = Files.newBufferedWriter(temp)) {
+            writer.write(header);
+            writer.newLine();
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("date|")) {
+                    continue; // blank lines and stray headers are dropped
+                }
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+
+        try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            tempChannel.force(true); // make sure the new copy is on disk before it replaces the old one
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open();
+    }
+
+    // Replaces the whole file with header, kept and rows (temp file, then atomic rename) and carries on
+    // appending. kept are lines written back exactly as given, e.g. malformed lines the loader reported.
+    public synchronized void replace(List<String> kept, Iterable<Transaction> rows) throws IOException {
+        sync();
+        channel.force(false);
+        wal.delete();
+        channel.close();
+        try {
+            rewrite(path, header, kept, rows);
+        } finally {
+            open(); // the old file if the rewrite failed
+        }
+    }
+
+    // REWRITE A WHOLE FILE____________________
+    // Writes header and rows to a temp file, forces it to disk and atomically swaps it in for path
+    public static void rewrite(Path path, String header, Iterable<Transaction> rows) throws IOException {
+        rewrite(path, header, List.of(), rows);
+    }
+
+    // The same, with the kept lines written as they are between the header and the rows
+    public static void rewrite(Path path, String header, List<String> kept, Iterable<Transaction> rows) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+            writer.write(header);
+            writer.newLine();
+            for (String line : kept) {
+                writer.write(line);
+                writer.newLine();
+            }
+            StringBuilder line = new StringBuilder(128);
+            for (Transaction t : rows) {
+                line.setLength(0);
+                writer.append(TransactionCodec.appendCSV(t, line));
+                writer.newLine();
+            }
+        }
+        try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            tempChannel.force(true);
+        }
+        Files.deleteIfExists(WriteAheadLog.pathFor(path)); // a leftover log belongs to the old file
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // WRITE RAW BYTES________________________
+    private void write(byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        unsynced++;
+    }
+
+    // CLOSE__________________________________
+    @Override
+    public void close() throws IOException {
+        background.shutdown(); // lets an already scheduled compaction finish
+        try {
+            background.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            sync();
+            channel.force(false); // a clean close leaves nothing to replay
+            wal.delete();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.pluralsight;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;//maps the file into memory a chunk at a time
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;//splits the chunks between worker threads
+
+// Loads a transactions file without holding the whole thing in memory as Strings.
+// The file is cut into chunks at line boundaries, each chunk is memory-mapped and parsed
+// on the fork-join pool, and the results are stitched back together in file order.
+// Reads the ledger's own pipe-delimited format, or comma-separated files such as bank exports (see BulkImport).
+public class TransactionLoader {
+
+    private static final int MIN_CHUNK_SIZE = 1 << 20;   // 1 MB - smaller files are parsed as one chunk
+    private static final int MAX_CHUNK_SIZE = 64 << 20;  // 64 MB - keeps each mapped chunk a reasonable size
+    private static final byte[] HEADER_PREFIX = "date".getBytes(StandardCharsets.US_ASCII); // then the delimiter
+
+    // A line that could not be turned into a Transaction
+    public static class LoadError {
+        private final long lineNumber;
+        private final String line;
+        private final String reason;
+
+        public LoadError(long lineNumber, String line, String reason) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.reason = reason;
+        }
+
+        public long getLineNumber() { return lineNumber; }
+        public String getLine() { return line; }
+        public String getReason() { return reason; }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + line + " (" + reason + ")";
+        }
+    }
+
+    // Everything the loader found in the file
+    public static class Result {
+        private final List<Transaction> transactions;
+        private final List<LoadError> errors;
+        private final boolean untidy;
+
+        Result(List<Transaction> transactions, List<LoadError> errors, boolean untidy) {
+            this.transactions = transactions;
+            this.errors = errors;
+            this.untidy = untidy;
+        }
+
+        public List<Transaction> getTransactions() { return transactions; } // in file order
+        public List<LoadError> getErrors() { return errors; }               // malformed lines, in file order
+        public boolean isUntidy() { return untidy; }                        // blank lines or repeated headers found
+    }
+
+    // One slice of the file, always starting at the beginning of a line
+    private static class Chunk {
+        final long start;
+        final long end;
+        final List<Transaction> transactions = new ArrayList<>();
+        final List<LoadError> errors = new ArrayList<>(); // line numbers are relative to the chunk until merged
+        long lines;
+        boolean untidy;
+
+        Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    // LOAD A FILE_______________________________
+    // Vendor names are shared through the dictionary as they are read, so repeats don't each keep a copy
+    public static Result load(Path path, VendorDictionary vendors) throws IOException {
+        return load(path, vendors, '|');
+    }
+
+    // delimiter is '|' for the ledger format or ',' for comma-separated files (quoted fields allowed)
+    public static Result load(Path path, VendorDictionary vendors, char delimiter) throws IOException {
+        return load(path, vendors, delimiter, false);
+    }
+
+    // wholeCents rejects amounts with a part cent, as new entries are (Transaction.toCents). The ledger's
+    // own files are read without it, so older rows holding part cents still load.
+    public static Result load(Path path, VendorDictionary vendors, char delimiter, boolean wholeCents) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<Chunk> chunks = split(channel);
+            if (!chunks.isEmpty()) {
+                try {
+                    ForkJoinPool.commonPool().invoke(new ParseTask(channel, chunks, 0, chunks.size(), vendors, delimiter, wholeCents));
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+
+            // Stitch the chunks back together and turn chunk-relative line numbers into file line numbers
+            int total = 0;
+            for (Chunk chunk : chunks) {
+                total += chunk.transactions.size();
+            }
+            ArrayList<Transaction> transactions = new ArrayList<>(total);
+            List<LoadError> errors = new ArrayList<>();
+            boolean untidy = false;
+            long linesBefore = 0;
+            for (Chunk chunk : chunks) {
+                transactions.addAll(chunk.transactions);
+                for (LoadError error : chunk.errors) {
+                    errors.add(new LoadError(linesBefore + error.getLineNumber(), error.getLine(), error.getReason()));
+                }
+                untidy |= chunk.untidy;
+                linesBefore += chunk.lines;
+            }
+            return new Result(transactions, errors, untidy);
+        }
+    }
+
+    // SPLIT THE FILE AT LINE BOUNDARIES__________
+    private static List<Chunk> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int parallelism = ForkJoinPool.commonPool().getParallelism();
+        long chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size / (parallelism * 4L) + 1));
+
+        List<Chunk> chunks = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize);
+            chunks.add(new Chunk(start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    // Returns the position just after the next '\n' at or after from (or the end of the file)
+    private static long nextLineStart(FileChannel channel, long from) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = from;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    // PARSE CHUNKS IN PARALLEL____________________
+    private static class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // never serialized; keeps -Xlint:serial quiet
+        private final FileChannel channel;
+        private final List<Chunk> chunks;
+        private final int from;
+        private final int to;
+        private final VendorDictionary vendors;
+        private final char delimiter;
+        private final boolean wholeCents;
+
+        ParseTask(FileChannel channel, List<Chunk> chunks, int from, int to, VendorDictionary vendors, char delimiter,
+                  boolean wholeCents) {
+            this.channel = channel;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.vendors = vendors;
+            this.delimiter = delimiter;
+            this.wholeCents = wholeCents;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                parse(chunks.get(from));
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ParseTask(channel, chunks, from, middle, vendors, delimiter, wholeCents),
+                    new ParseTask(channel, chunks, middle, to, vendors, delimiter, wholeCents));
+        }
+
+        private void parse(Chunk chunk) {
+            byte[] bytes = new byte[(int) (chunk.end - chunk.start)];
+            try {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start, bytes.length);
+                mapped.get(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // unwrapped again in load()
+            }
+
+            int lineStart = 0;
+            while (lineStart < bytes.length) {
+                int lineEnd = lineStart;
+                while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                chunk.lines++;
+                parseLine(chunk, bytes, lineStart, lineEnd);
+                lineStart = lineEnd + 1;
+            }
+        }
+
+        private void parseLine(Chunk chunk, byte[] bytes, int start, int end) {
+            if (end > start && bytes[end - 1] == '\r') {
+                end--; // Windows line endings
+            }
+
+            // Skip header or blank lines, remembering if they turned up anywhere but the first line
+            if (isHeader(bytes, start, end, delimiter) || isBlank(bytes, start, end)) {
+                chunk.untidy |= chunk.start > 0 || chunk.lines > 1;
+                return;
+            }
+            try {
+                // Parses straight from the chunk bytes, so only malformed lines ever become a String
+                Transaction t = delimiter == '|'
+                        ? TransactionCodec.parse(bytes, start, end, vendors)
+                        : TransactionCodec.parseCommaSeparated(bytes, start, end, vendors);
+                if (wholeCents) {
+                    Transaction.toCents(t.getAmount()); // throws IllegalArgumentException for a part cent
+                }
+                chunk.transactions.add(t);
+            } catch (RuntimeException e) {
+                String line = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+                chunk.errors.add(new LoadError(chunk.lines, line, e.getClass().getSimpleName()
+                        + (e.getMessage() == null ? "" : ": " + e.getMessage())));
+            }
+        }
+
+        // "date|..." in the ledger format; other files may capitalise it ("Date,Time,...")
+        private static boolean isHeader(byte[] bytes, int start, int end, char delimiter) {
+            if (end - start <= HEADER_PREFIX.length || bytes[start + HEADER_PREFIX.length] != delimiter) {
+                return false;
+            }
+            for (int i = 0; i < HEADER_PREFIX.length; i++) {
+                byte b = bytes[start + i];
+                if (b != HEADER_PREFIX[i] && (delimiter == '|' || (b | 0x20) != HEADER_PREFIX[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isBlank(byte[] bytes, int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (bytes[i] != ' ' && bytes[i] != '\t' && bytes[i] != '\r') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -6,20 +6,57 @@ import java.math.BigDecimal;//for more precise decimal numbers than double.
 import java.nio.file.*;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.AbstractList;
 import java.util.ArrayList;//stores transactions
+import java.util.List;
+import java.util.RandomAccess;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+// Safe to share between threads: reads come from snapshot views and never wait, and all writes go
+// through one LedgerWriter thread that batches them into the CSV.
 public class TransactionManager {
 
     private String filePath; // path to the transactions.csv file
-    private ArrayList<Transaction> transactions = new ArrayList<>(); // stores all transactions
-    private static final String HEADER = "date|time|description|vendor|amount"; // CSV header
+    private LedgerStore store; // stores all transactions, sorted by date and time
+    private TransactionJournal journal; // appends new transactions to the CSV file
+    private volatile LedgerWriter writer; // the one thread that adds transactions; null once closed
+    private final LedgerPrinter printer = new LedgerPrinter(System.out); // buffered table output
+    private volatile int snapshotRows = -1;   // rows in transactions.csv.snap when it matched memory (only adds happen after load)
+    private LedgerPartitions partitions;      // cold months when partitioned, otherwise null
+    private LocalDate hotStart;               // partitioned: rows before this date live in the month files
+    static final String HEADER = "date|time|description|vendor|amount"; // CSV header
+    private static final int MAX_REPORTED_ERRORS = 20; // malformed lines printed at startup before summarising
+    private static final long COLD_CACHE_BYTES = 64L * 1024 * 1024; // memory budget for loaded cold months
 
     //CONSTRUCTOR______________
     public TransactionManager(String filePath) {
+        this(filePath, SyncPolicy.GROUP); // group commit by default
+    }
+
+    public TransactionManager(String filePath, SyncPolicy syncPolicy) {
+        this(filePath, syncPolicy, StorageLayout.ROWS);
+    }
+
+    // COLUMNAR keeps the ledger in primitive columns - a much smaller footprint for very large files
+    public TransactionManager(String filePath, SyncPolicy syncPolicy, StorageLayout layout) {
+        this(filePath, syncPolicy, layout, false);
+    }
+
+    // partitioned keeps only the hot months (from the start of the year or of the previous month, whichever
+    // is earlier) in transactions.csv and memory; older months move to per-month files that are only read
+    // when a query reaches back to them (see LedgerPartitions)
+    public TransactionManager(String filePath, SyncPolicy syncPolicy, StorageLayout layout, boolean partitioned) {
         this.filePath = filePath;
+        this.store = new LedgerStore(layout);
         createFileIfMissing(); // make sure the CSV file exists
+        openJournal(syncPolicy);
+        if (partitioned) {
+            openPartitions(layout);
+        }
         loadTransactions();    // load transactions from the CSV file
+        writer = new LedgerWriter(journal, store);
     }
 
     // CREATE CSV FILE IF MISSING___________
@@ -44,36 +81,232 @@ public class TransactionManager {
         }
     }
 
+    // OPEN THE APPEND JOURNAL___________
+    private void openJournal(SyncPolicy syncPolicy) {
+        try {
+            journal = new TransactionJournal(Path.of(filePath), HEADER, syncPolicy);
+
+            // The last run didn't close cleanly - say what the write-ahead log put right before loading
+            WriteAheadLog.Recovery recovery = journal.getRecovery();
+            if (recovery.getReplayedRows() > 0) {
+                System.out.println("Recovered " + recovery.getReplayedRows() + " transaction(s) from the write-ahead log.");
+            }
+            if (recovery.getDiscardedBytes() > 0) {
+                System.out.println("Discarded " + recovery.getDiscardedBytes() + " bytes of unfinished writes from the end of the CSV.");
+            }
+        } catch (IOException e) {
+            System.out.println("Error opening CSV: " + e.getMessage());
+        }
+    }
+
+    // OPEN THE MONTH FILES___________
+    private void openPartitions(StorageLayout layout) {
+        LocalDate today = LocalDate.now();
+        LocalDate previousMonth = Reports.Period.PREVIOUS_MONTH.start(today);
+        LocalDate yearStart = Reports.Period.YEAR_TO_DATE.start(today);
+        hotStart = previousMonth.isBefore(yearStart) ? previousMonth : yearStart;
+        try {
+            partitions = new LedgerPartitions(LedgerPartitions.pathFor(Path.of(filePath)), layout, COLD_CACHE_BYTES);
+        } catch (IOException e) {
+            System.out.println("Error opening month files, keeping everything in memory: " + e.getMessage());
+        }
+    }
+
     // LOAD TRANSACTIONS FROM FILE___________
     private void loadTransactions() {
+        LedgerMetrics.Span span = LedgerMetrics.LOAD.start();
+        int rowsRead = loadRows();
+        long bytes = 0;
         try {
-            for (String line : Files.readAllLines(Path.of(filePath))) {
-                // Skip header or blank lines
-                if (line.startsWith("date|") || line.isBlank()) {
-                    continue;
-                }
-                // Convert line to Transaction object and add to list
-                Transaction t = Transaction.fromCSV(line);
-                transactions.add(t);
+            bytes = Files.size(Path.of(filePath));
+        } catch (IOException e) {
+            // already reported by loadRows
+        }
+        span.end(rowsRead, store.size(), bytes);
+    }
+
+    // Returns how many rows were read from the snapshot or CSV (more than the store holds if months were archived)
+    private int loadRows() {
+        // A binary snapshot that still matches the CSV loads far faster than parsing the text
+        Path csv = Path.of(filePath);
+        try {
+            // Archiving rewrites the CSV, which needs its malformed lines - only the CSV has those
+            List<Transaction> snapshot = LedgerSnapshot.read(LedgerSnapshot.pathFor(csv), csv, store.vendors());
+            if (snapshot != null && !hasColdRows(snapshot)
+                    && (partitions == null || partitions.getPendingArchive() == null)) {
+                store.addAll(snapshot);
+                snapshotRows = snapshot.size();
+                return snapshot.size();
+            }
+        } catch (IOException e) {
+            System.out.println("Ignoring snapshot (" + e.getMessage() + "), loading CSV instead.");
+        }
+
+        boolean untidy = false; // true when the file has blank lines or repeated headers
+        int rowsRead = 0;
+        try {
+            // Streams and parses the file in parallel chunks
+            TransactionLoader.Result result = TransactionLoader.load(Path.of(filePath), store.vendors());
+            List<Transaction> hot = archiveColdRows(result.getTransactions(), result.getErrors());
+            store.addAll(hot);
+            rowsRead = result.getTransactions().size();
+            untidy = result.isUntidy() && hot == result.getTransactions(); // archiving rewrote the file cleanly
+
+            // Report lines that couldn't be read instead of giving up on the whole file
+            List<TransactionLoader.LoadError> errors = result.getErrors();
+            for (int i = 0; i < errors.size() && i < MAX_REPORTED_ERRORS; i++) {
+                System.out.println("Skipping malformed " + errors.get(i));
+            }
+            if (errors.size() > MAX_REPORTED_ERRORS) {
+                System.out.println("...and " + (errors.size() - MAX_REPORTED_ERRORS) + " more malformed lines.");
             }
         } catch (IOException e) {
             System.out.println("Error loading CSV: " + e.getMessage());
         }
+
+        // Only rewrite the file when it actually needs tidying up, and do it in the background
+        if (untidy && journal != null) {
+            journal.scheduleCompaction();
+        }
+        return rowsRead;
     }
 
-    // SAVE TRANSACTIONS BACK TO FILE____________
-    private void save() {
-        try (BufferedWriter writer = Files.newBufferedWriter(Path.of(filePath))) {
-            writer.write(HEADER);
-            writer.newLine();
+    // Partitioned: moves rows dated before hotStart into their month files and rewrites the CSV without them.
+    // Returns the rows that stay (rows itself when there is nothing to move). The month files are committed
+    // first (see LedgerPartitions.archive), so a crash before the CSV is rewritten leaves the rows in both
+    // places; the next start sees the pending archive still matches the CSV and leaves those rows out
+    // instead of archiving them twice. Rows backdated into a cold month while running stay in the CSV until
+    // the next start. The malformed lines the loader reported stay in the CSV too, just after the header,
+    // so they are still there for someone to fix rather than lost with the rewrite.
+    private List<Transaction> archiveColdRows(List<Transaction> rows, List<TransactionLoader.LoadError> errors) {
+        if (partitions == null || journal == null) {
+            return rows;
+        }
+        Path csv = Path.of(filePath);
+        LocalDate movedBefore = hotStart;
+        boolean resumed = false;
+        try {
+            LedgerPartitions.PendingArchive pending = partitions.getPendingArchive();
+            if (pending != null && pending.stillIn(csv)) {
+                resumed = true;
+                if (pending.getBefore().isAfter(movedBefore)) {
+                    movedBefore = pending.getBefore();
+                }
+            } else if (pending != null) {
+                partitions.finishArchive(); // the CSV was rewritten before the crash
+            }
+        } catch (IOException e) {
+            System.out.println("Error checking the last archive, keeping old months in the CSV: " + e.getMessage());
+            return rows;
+        }
+
+        ArrayList<Transaction> kept = new ArrayList<>(rows.size()); // rows not already in the month files
+        ArrayList<Transaction> cold = new ArrayList<>();
+        ArrayList<Transaction> hot = new ArrayList<>(rows.size());
+        LocalDate archivedBefore = resumed ? partitions.getPendingArchive().getBefore() : null;
+        for (Transaction t : rows) {
+            if (archivedBefore == null || !t.getDate().isBefore(archivedBefore)) {
+                kept.add(t);
+                (t.getDate().isBefore(hotStart) ? cold : hot).add(t);
+            }
+        }
+        if (cold.isEmpty() && !resumed) {
+            return rows;
+        }
+
+        if (!cold.isEmpty()) {
+            try {
+                partitions.archive(cold, movedBefore, csv);
+            } catch (IOException e) {
+                System.out.println("Error archiving old months, keeping them in the CSV: " + e.getMessage());
+                return kept;
+            }
+        }
+        // From here the month files hold the cold rows; the CSV still does too until it is rewritten
+        ArrayList<String> malformed = new ArrayList<>(errors.size());
+        for (TransactionLoader.LoadError error : errors) {
+            malformed.add(error.getLine());
+        }
+        try {
+            journal.replace(malformed, hot);
+            partitions.finishArchive();
+            System.out.println("Moved " + cold.size() + " transactions dated before " + hotStart + " to the month files.");
+        } catch (IOException e) {
+            System.out.println("Error rewriting the CSV, the next start finishes moving old months: " + e.getMessage());
+        }
+        return hot;
+    }
 
-            // Write each transaction as a CSV line
-            for (Transaction t : transactions) {
-                writer.write(t.toCSV());
-                writer.newLine();
+    // True when the ledger is partitioned and some of rows are dated before the hot months
+    private boolean hasColdRows(List<Transaction> rows) {
+        if (partitions == null || journal == null) {
+            return false;
+        }
+        for (Transaction t : rows) {
+            if (t.getDate().isBefore(hotStart)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // SNAPSHOT_____________________________
+    // Writes transactions.csv.snap so the next start can skip parsing the CSV.
+    // Runs on the writer thread while it is open, so no append can land between the rows and the CSV size.
+    public void writeSnapshot() {
+        LedgerWriter current = writer;
+        if (current != null) {
+            current.run(this::writeSnapshotNow).join();
+        } else {
+            writeSnapshotNow();
+        }
+    }
+
+    private void writeSnapshotNow() {
+        try {
+            if (journal != null) {
+                journal.awaitCompaction(); // a rewrite after this point would make the snapshot stale at once
+                journal.sync(); // the snapshot records the CSV's size, so it must be complete on disk
             }
+            Path csv = Path.of(filePath);
+            List<Transaction> rows = store.oldestFirst();
+            LedgerSnapshot.write(LedgerSnapshot.pathFor(csv), csv, rows);
+            snapshotRows = rows.size();
         } catch (IOException e) {
-            System.out.println("Error saving CSV: " + e.getMessage());
+            System.out.println("Error writing snapshot: " + e.getMessage());
+        }
+    }
+
+    // Rebuilds the CSV file from its snapshot, e.g. after the CSV was lost or damaged
+    public static void restoreCsvFromSnapshot(String filePath) throws IOException {
+        Path csv = Path.of(filePath);
+        Path snapshot = LedgerSnapshot.pathFor(csv);
+        List<Transaction> rows = LedgerSnapshot.read(snapshot, null, new VendorDictionary());
+        if (rows == null) {
+            throw new IOException(snapshot + " not found");
+        }
+        TransactionJournal.rewrite(csv, HEADER, rows);
+        LedgerSnapshot.write(snapshot, csv, rows); // record the new CSV so the snapshot stays usable
+    }
+
+    // CLOSE THE FILE_____________________
+    // Finishes queued writes, forces them to disk, and refreshes the snapshot if there is one and it is out of date
+    public synchronized void close() {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("Error closing CSV: " + e.getMessage());
+        }
+        journal = null;
+        if (snapshotRows != store.size() && Files.exists(LedgerSnapshot.pathFor(Path.of(filePath)))) {
+            writeSnapshot();
         }
     }
 
@@ -86,7 +319,26 @@ public class TransactionManager {
         String vendor = scanner.nextLine();
 
         System.out.print("Enter amount: ");
-        BigDecimal amount = new BigDecimal(scanner.nextLine());
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(scanner.nextLine().trim());
+            Transaction.toCents(amount); // must be whole cents
+        } catch (IllegalArgumentException e) { // also catches NumberFormatException
+            System.out.println("Invalid amount. Transaction not added.");
+            return;
+        }
+
+        Transaction newTransaction = createTransaction(desc, vendor, amount, isDeposit);
+        if (add(newTransaction)) {
+            System.out.println("Transaction added successfully!");
+        }
+    }
+
+    // Builds a deposit or payment stamped with the current date and time (payments are made negative).
+    // Throws IllegalArgumentException unless amount is whole cents - older rows may have fractions of a
+    // cent, but nothing new is added with them.
+    public Transaction createTransaction(String description, String vendor, BigDecimal amount, boolean isDeposit) {
+        Transaction.toCents(amount);
 
         // If this is a payment, make it a negative number
         if (!isDeposit) {
@@ -94,109 +346,284 @@ public class TransactionManager {
         }
 
         // Create a new Transaction with the current date and time
-        Transaction newTransaction = new Transaction(
+        return new Transaction(
                 LocalDate.now(),
-                LocalTime.now(),
-                desc,
-                vendor,
+                LocalTime.now().withNano(0), // the CSV keeps whole seconds, so the list does too
+                description,
+                store.vendors().intern(vendor), // share one copy of each vendor name
                 amount
         );
+    }
 
-        transactions.add(newTransaction); // add it to our list
-        save(); // save the updated list to CSV
-        System.out.println("Transaction added successfully!");
+    // Adds a transaction without prompting. Returns false (after printing why) if it could not be saved.
+    // Waits for the writer thread, which appends it to the CSV and then slots it into the sorted store.
+    public boolean add(Transaction newTransaction) {
+        try {
+            return addAsync(newTransaction).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
     }
 
-    //GET ALL TRANSACTIONS______________________
-    public ArrayList<Transaction> getAll() { //declared public getAll method
-        ArrayList<Transaction> sortedList = new ArrayList<>();  //Creates new empty list to sort data
-        for (Transaction t : transactions) {
-            sortedList.add(t);
-        }   //Loops through each Transaction (t) in original list & puts them in sortedList. so the sorting doesn’t modify the original data.
-
-        // newest transactions first
-        for (int i = 0; i < sortedList.size(); i++) { //compares pairs of neighboring transactions
-            for (int j = 0; j < sortedList.size() - 1 - i; j++) {
-                Transaction t1 = sortedList.get(j);
-                Transaction t2 = sortedList.get(j + 1);
-
-                // Compare dates first
-                if (t1.getDate().isBefore(t2.getDate())) {
-                    // Swap if t1 is older than t2
-                    sortedList.set(j, t2);
-                    sortedList.set(j + 1, t1);
-                }
-                // If dates are equal, compare times
-                else if (t1.getDate().isEqual(t2.getDate()) && t1.getTime().isBefore(t2.getTime())) {
-                    // Swap if t1 is earlier in the same day
-                    sortedList.set(j, t2);
-                    sortedList.set(j + 1, t1);
-                }
+    // Queues a transaction for the writer thread without waiting; completes with add()'s result
+    public CompletableFuture<Boolean> addAsync(Transaction newTransaction) {
+        LedgerWriter current = writer;
+        if (current == null) {
+            System.out.println("Error saving CSV: file is not open");
+            return CompletableFuture.completedFuture(false);
+        }
+        return current.submit(newTransaction);
+    }
+
+    // BULK IMPORT______________________________
+    // Reads a pipe- or comma-delimited file in parallel chunks, skips rows the ledger already has, and
+    // commits the rest as one batch: a single append to the CSV, forced to disk, then one update of the store.
+    // Throws IOException if the file can't be read; rows that can't be used are reported in the result.
+    public BulkImport.Result importFile(Path file) throws IOException {
+        LedgerMetrics.Span span = LedgerMetrics.IMPORT.start();
+        long start = System.nanoTime();
+        TransactionLoader.Result parsed = TransactionLoader.load(file, store.vendors(), BulkImport.delimiterOf(file), true);
+        List<Transaction> rows = parsed.getTransactions();
+
+        int[] duplicates = new int[1];
+        boolean saved;
+        LedgerWriter current = writer;
+        if (current == null) {
+            System.out.println("Error saving CSV: file is not open");
+            saved = false;
+        } else {
+            // Duplicates are checked on the writer thread, so rows added while the file was parsing count too.
+            // Partitioned: rows already archived into month files in the batch's span count as well.
+            try {
+                saved = current.submitAll(rows, batch -> BulkImport.withoutDuplicates(batch, this::rowsBetween, duplicates)).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
             }
         }
+        int imported = saved ? rows.size() - duplicates[0] : 0;
+        span.end(rows.size(), imported, Files.size(file));
+        return new BulkImport.Result(rows.size() + parsed.getErrors().size(), imported, duplicates[0],
+                parsed.getErrors(), System.nanoTime() - start);
+    }
 
-        // 3. Return the sorted list
-        return sortedList;
+    // QUERY____________________________________
+    // Combinable filters with lazy results, e.g. query().vendor("Amazon").payments().between(start, end).list()
+    public LedgerQuery query() {
+        return new LedgerQuery(store, partitions, hotStart);
+    }
+
+    //GET ALL TRANSACTIONS______________________
+    // newest transactions first - a read-only view over the already sorted store, so no copying or sorting
+    public List<Transaction> getAll() {
+        LedgerMetrics.Span span = LedgerMetrics.GET_ALL.start();
+        List<Transaction> all = partitions != null
+                ? merge(store.newestFirst(), partitions.newestFirst(null, null), true)
+                : store.newestFirst();
+        span.end(0, all.size()); // a view: rows are only read as they are displayed
+        return all;
     }
 
     // GET DEPOSITS_______________________________________
-    public ArrayList<Transaction> getDeposits() { //public method named getDeposits which returns an ArrayList containing objects of type Transaction.
-        ArrayList<Transaction> deposits = new ArrayList<>();//Creates empty list named deposits.This stores all Transaction objects that are deposits (positive).
-        for (Transaction t : transactions) {
-            if (t.getAmount().compareTo(BigDecimal.ZERO) > 0) { //Checks if the transaction amount is greater than zero.
-                deposits.add(t);
-            }
-        }
-        return deposits; //After looping through all transactions, the method returns the list with only deposits.
+    // Deposits have positive amounts. Oldest first; rows are only turned into Transactions as they are read
+    public List<Transaction> getDeposits() {
+        LedgerMetrics.Span span = LedgerMetrics.GET_DEPOSITS.start();
+        List<Transaction> deposits = partitions != null
+                ? merge(store.oldestFirstWithSign(1), partitions.oldestFirstWithSign(1), false)
+                : store.oldestFirstWithSign(1);
+        span.end(storedRows(), deposits.size()); // every stored amount is checked for its sign
+        return deposits;
     }
 
     //GET PAYMENTS___________________________________________
-    public ArrayList<Transaction> getPayments() {
-        ArrayList<Transaction> payments = new ArrayList<>();
-        for (Transaction t : transactions) {
-            // Payments have negative amounts
-            if (t.getAmount().compareTo(BigDecimal.ZERO) < 0) {
-                payments.add(t);
-            }
-        }
+    // Payments have negative amounts
+    public List<Transaction> getPayments() {
+        LedgerMetrics.Span span = LedgerMetrics.GET_PAYMENTS.start();
+        List<Transaction> payments = partitions != null
+                ? merge(store.oldestFirstWithSign(-1), partitions.oldestFirstWithSign(-1), false)
+                : store.oldestFirstWithSign(-1);
+        span.end(storedRows(), payments.size()); // every stored amount is checked for its sign
         return payments;
     }
 
+    // Rows in memory plus, when partitioned, the rows in the month files
+    private long storedRows() {
+        return partitions != null ? store.size() + partitions.rowCount() : store.size();
+    }
+
     // GET TRANSACTIONS BY VENDOR --------------------
-    public ArrayList<Transaction> getByVendor(String vendor) {
-        ArrayList<Transaction> results = new ArrayList<>();
-        for (Transaction t : transactions) {
-            if (t.getVendor().equalsIgnoreCase(vendor)) {
-                results.add(t);
-            }
-        }
-        return results;
+    // Case-insensitive, newest first. Looks the vendor up in the store's vendor index instead of scanning
+    public List<Transaction> getByVendor(String vendor) {
+        LedgerMetrics.Span span = LedgerMetrics.GET_BY_VENDOR.start();
+        List<Transaction> rows = partitions != null
+                ? merge(store.newestFirstForVendor(vendor), partitions.newestFirstForVendor(vendor), true)
+                : store.newestFirstForVendor(vendor);
+        span.end(rows.size(), rows.size()); // the vendor's postings hold exactly its rows
+        return rows;
     }
 
     //GET TRANSACTIONS BY DATE RANGE____________________________
-    public ArrayList<Transaction> getByDateRange(LocalDate start, LocalDate end) {
-        ArrayList<Transaction> results = new ArrayList<>();
-        for (Transaction t : transactions) {
-            if (!t.getDate().isBefore(start) && !t.getDate().isAfter(end)) {
-                results.add(t);
+    // start and end are inclusive; newest first like getAll(). Uses the store's date index instead of a full scan
+    // Partitioned: only the month files that overlap the range are opened
+    public List<Transaction> getByDateRange(LocalDate start, LocalDate end) {
+        LedgerMetrics.Span span = LedgerMetrics.GET_BY_DATE_RANGE.start();
+        List<Transaction> rows = rowsBetween(start, end);
+        span.end(rows.size(), rows.size()); // binary search to the range, then only its rows
+        return rows;
+    }
+
+    private List<Transaction> rowsBetween(LocalDate start, LocalDate end) {
+        return partitions != null && start.isBefore(hotStart)
+                ? merge(store.newestFirst(start, end), partitions.newestFirst(start, end), true)
+                : store.newestFirst(start, end);
+    }
+
+    // TOTALS_________________________________________
+    // Deposits, payments and net for start through end (inclusive), from the running rollups
+    // Partitioned: whole cold months come from the manifest
+    public Rollups.Totals getTotals(LocalDate start, LocalDate end) {
+        LedgerMetrics.Span span = LedgerMetrics.GET_TOTALS.start();
+        Rollups.Totals totals = store.rollups().between(start, end);
+        if (partitions != null && start.isBefore(hotStart)) {
+            totals.add(partitions.totals(start, end));
+        }
+        span.end(0, totals.getCount()); // summed from the rollups, no rows read
+        return totals;
+    }
+
+    // Totals for one vendor (ignoring case)
+    public Rollups.Totals getVendorTotals(String vendor) {
+        Rollups.Totals totals = store.rollups().vendor(store.vendors().find(vendor));
+        if (partitions != null) {
+            totals.add(partitions.vendorTotals(vendor));
+        }
+        return totals;
+    }
+
+    // TEXT SEARCH_____________________________________
+    // Rows whose description or vendor contains every word of query, newest first, e.g. "invoice 1001";
+    // a word ending in * matches as a prefix ("key*"). Answered from the word index, not a scan.
+    public List<Transaction> search(String query) {
+        LedgerMetrics.Span span = LedgerMetrics.SEARCH.start();
+        List<Transaction> rows = partitions != null
+                ? merge(store.search(query), partitions.search(query), true)
+                : store.search(query);
+        span.end(rows.size(), rows.size()); // the word index holds exactly the matching rows
+        return rows;
+    }
+
+    // BALANCES_______________________________________
+    // Balance on any date, net flow between dates and daily/monthly series, from the store's running balances.
+    // Partitioned: cold months add their net from the manifest (only a month cut by the date is opened).
+    public Balances getBalances() {
+        if (partitions != null) {
+            LedgerPartitions cold = partitions;
+            return store.balances(date -> cold.totals(null, date).getNetCents());
+        }
+        return store.balances();
+    }
+
+    // Merges rows from memory with rows from the month files, both already in order. Rows backdated into a
+    // cold month can sit in memory too, so this is a real merge rather than one list after the other.
+    // On equal date and time the rows from memory were added later, so they count as newer.
+    // Returns a view, like the store's lists: nothing is copied, and only the rows read are looked at.
+    private static List<Transaction> merge(List<Transaction> hot, List<Transaction> cold, boolean newestFirst) {
+        if (cold.isEmpty()) {
+            return hot;
+        }
+        if (hot.isEmpty()) {
+            return cold;
+        }
+        return new MergedView(hot, cold, newestFirst);
+    }
+
+    // Two ordered lists read as one. Row i is found with a binary search over how many of the first i rows
+    // come from hot - O(log n) - and reading on from the last row found is O(1), so paging and iterating
+    // cost about the same as on a plain list.
+    private static class MergedView extends AbstractList<Transaction> implements RandomAccess {
+        private final List<Transaction> hot;
+        private final List<Transaction> cold;
+        private final boolean newestFirst;
+        private Position last; // the last row found; a Position never changes, so sharing one between threads is safe
+
+        // Row index is hot.get(h) when fromHot, otherwise cold.get(index - h)
+        private static class Position {
+            final int index;
+            final int h;
+            final boolean fromHot;
+
+            Position(int index, int h, boolean fromHot) {
+                this.index = index;
+                this.h = h;
+                this.fromHot = fromHot;
+            }
+        }
+
+        MergedView(List<Transaction> hot, List<Transaction> cold, boolean newestFirst) {
+            this.hot = hot;
+            this.cold = cold;
+            this.newestFirst = newestFirst;
+        }
+
+        @Override
+        public Transaction get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            Position previous = last;
+            int h;
+            if (previous != null && previous.index == index - 1) {
+                h = previous.fromHot ? previous.h + 1 : previous.h;
+            } else if (previous != null && previous.index == index) {
+                h = previous.h;
+            } else {
+                h = hotBefore(index);
+            }
+            int c = index - h;
+            boolean fromHot = h < hot.size() && (c == cold.size() || hotFirst(hot.get(h), cold.get(c)));
+            last = new Position(index, h, fromHot);
+            return fromHot ? hot.get(h) : cold.get(c);
+        }
+
+        @Override
+        public int size() {
+            return hot.size() + cold.size();
+        }
+
+        // True when hot row x goes before cold row y
+        private boolean hotFirst(Transaction x, Transaction y) {
+            int order = LedgerStore.CHRONOLOGICAL.compare(x, y);
+            return newestFirst ? order >= 0 : order < 0;
+        }
+
+        // How many of the first index merged rows come from hot: the smallest h for which hot.get(h)
+        // does not go before cold.get(index - h - 1)
+        private int hotBefore(int index) {
+            int low = Math.max(0, index - cold.size());
+            int high = Math.min(index, hot.size());
+            while (low < high) {
+                int h = (low + high) >>> 1;
+                if (hotFirst(hot.get(h), cold.get(index - h - 1))) {
+                    low = h + 1;
+                } else {
+                    high = h;
+                }
             }
+            return low;
         }
-        return results;
     }
 
     // DISPLAY TRANSACTIONS__________________________________________
-    public void display(ArrayList<Transaction> list) {
+    // Streams the whole list through the buffered printer
+    public void display(List<Transaction> list) {
+        displayPage(list, 0, list.size());
+    }
+
+    // Prints rows [offset, offset + count) of list; only those rows are read
+    public void displayPage(List<Transaction> list, int offset, int count) {
         if (list.isEmpty()) {
             System.out.println("No transactions found.");
             return;
         }
-
-        // Print a header row
-        System.out.println("Date         Time       Description               Vendor          Amount");
-
-        // Display each transaction using its displayTransaction() method
-        for (Transaction t : list) {
-            System.out.println(t.displayTransaction());
-        }
+        printer.print(list, offset, count); // header row, then each row's displayTransaction() format
     }
 }
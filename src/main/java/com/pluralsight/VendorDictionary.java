@@ -0,0 +1,79 @@
+package com.pluralsight;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Dictionary of vendor names.
+// A ledger has a few hundred vendors repeated across every row, so each spelling is kept once and
+// shared by all transactions (intern), and each vendor gets a small int id keyed on its
+// case-insensitive name (idOf/find) so "Amazon", "amazon" and "AMAZON" are the same vendor.
+// Exact spellings can also be numbered (spellingIdOf) for stores that keep ids instead of Strings.
+// New ids are only handed out by the ledger's writing thread; lookups are safe from any thread.
+public class VendorDictionary {
+
+    private final ConcurrentHashMap<String, String> spellings = new ConcurrentHashMap<>(); // exact spelling -> shared copy
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();      // normalized key -> id
+    private final ConcurrentHashMap<String, Integer> spellingIds = new ConcurrentHashMap<>(); // exact spelling -> spelling id
+    private volatile String[] names = new String[16];         // id -> first spelling seen (doubled when full)
+    private volatile int nameCount;                           // ids handed out so far
+    private volatile String[] spellingsById = new String[16]; // spelling id -> spelling (doubled when full)
+    private volatile int spellingCount;                       // spelling ids handed out so far
+
+    // Returns the shared copy of this exact spelling. Safe to call from the loader's worker threads.
+    public String intern(String vendor) {
+        String shared = spellings.putIfAbsent(vendor, vendor);
+        return shared == null ? vendor : shared;
+    }
+
+    // Returns the vendor's id, giving it a new one the first time it is seen
+    public int idOf(String vendor) {
+        String key = normalize(vendor);
+        Integer id = ids.get(key);
+        if (id == null) {
+            // Publish the name before the id, so anyone who can find the id can also read its name.
+            // Slots past nameCount are unused, so the new name can go straight into the current array.
+            id = nameCount;
+            String[] current = id == names.length ? Arrays.copyOf(names, id * 2) : names;
+            current[id] = vendor;
+            names = current;
+            nameCount = id + 1;
+            ids.put(key, id);
+        }
+        return id;
+    }
+
+    // Returns the vendor's id, or -1 if no transaction has used that vendor
+    public int find(String vendor) {
+        Integer id = ids.get(normalize(vendor));
+        return id == null ? -1 : id;
+    }
+
+    // Numbers each exact spelling, so a row can store an int instead of a String (see ColumnarRows)
+    public int spellingIdOf(String vendor) {
+        Integer id = spellingIds.get(vendor);
+        if (id == null) {
+            // Same publishing order as idOf: the spelling, then the count, then the id
+            id = spellingCount;
+            String[] current = id == spellingsById.length ? Arrays.copyOf(spellingsById, id * 2) : spellingsById;
+            current[id] = intern(vendor);
+            spellingsById = current;
+            spellingCount = id + 1;
+            spellingIds.put(current[id], id);
+        }
+        return id;
+    }
+
+    public String spelling(int spellingId) { return spellingsById[spellingId]; }
+
+    public String nameOf(int id) { return names[id]; }
+    public int size() { return nameCount; }
+
+    // Folds case the same way String.equalsIgnoreCase compares characters
+    static String normalize(String vendor) {
+        StringBuilder key = new StringBuilder(vendor.length());
+        for (int i = 0; i < vendor.length(); i++) {
+            key.append(Character.toLowerCase(Character.toUpperCase(vendor.charAt(i))));
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,237 @@
+package com.pluralsight;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;//catches records torn by a crash or damaged on disk
+
+// Write-ahead log beside the CSV (transactions.csv.wal).
+// Every batch of appended CSV bytes is first written here as checksummed records, together with the
+// CSV offset it goes to, and the log is what gets forced to disk on commit. If the app dies, the next
+// start replays the log onto the CSV: rows that never reached the CSV are written again, and anything
+// past the last complete batch (a torn line, half of an import) is cut off. The CSV then ends exactly
+// at the last committed batch. A clean close deletes the log.
+//
+// Layout (big-endian):
+//   header  "LEDGWAL1"  csvSize:long  crc32c(csvSize):int     csvSize = CSV length when the log started
+//   record  length:int  flags:byte  csvOffset:long  crc32c(flags, csvOffset, bytes):int  bytes
+// flags bit 0 marks the last record of a batch; a batch is only replayed once that record is found.
+public class WriteAheadLog implements Closeable {
+
+    private static final byte[] MAGIC = {'L', 'E', 'D', 'G', 'W', 'A', 'L', '1'};
+    private static final int HEADER_SIZE = MAGIC.length + Long.BYTES + Integer.BYTES;
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES + 1 + Long.BYTES + Integer.BYTES;
+    private static final byte END_OF_BATCH = 1;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    private final CRC32C crc = new CRC32C();
+
+    // What recovery did at startup
+    public static class Recovery {
+        private final long replayedRows;
+        private final long discardedBytes;
+
+        Recovery(long replayedRows, long discardedBytes) {
+            this.replayedRows = replayedRows;
+            this.discardedBytes = discardedBytes;
+        }
+
+        public long getReplayedRows() { return replayedRows; }     // rows written back into the CSV
+        public long getDiscardedBytes() { return discardedBytes; } // unfinished bytes cut from the end of the CSV
+    }
+
+    private WriteAheadLog(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    public static Path pathFor(Path csv) {
+        return csv.resolveSibling(csv.getFileName() + ".wal");
+    }
+
+    // START A NEW LOG__________________________
+    // Writes a fresh log for a CSV that is csvSize bytes long and complete on disk. The header goes to a
+    // temp file that is forced and renamed over any old log, so there is never a half-written header.
+    public static WriteAheadLog create(Path path, long csvSize) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.put(MAGIC).putLong(csvSize).putInt(checksum(ByteBuffer.allocate(Long.BYTES).putLong(0, csvSize)));
+            writeFully(tempChannel, header.flip());
+            tempChannel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new WriteAheadLog(path, FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    }
+
+    // APPEND___________________________________
+    // Logs bytes that are about to be written at csvOffset in the CSV. endsBatch marks the batch complete.
+    // bytes is read from its position to its limit and left unchanged.
+    public void append(long csvOffset, ByteBuffer bytes, boolean endsBatch) throws IOException {
+        crc.reset();
+        byte flags = endsBatch ? END_OF_BATCH : 0;
+        recordHeader.clear();
+        recordHeader.putInt(bytes.remaining()).put(flags).putLong(csvOffset);
+        crc.update(recordHeader.array(), Integer.BYTES, 1 + Long.BYTES);
+        crc.update(bytes.duplicate());
+        recordHeader.putInt((int) crc.getValue()).flip();
+
+        writeFully(channel, recordHeader);
+        writeFully(channel, bytes.duplicate());
+        LedgerMetrics.WAL_BYTES_WRITTEN.add(recordHeader.limit() + bytes.remaining());
+    }
+
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Closes and removes the log - only once everything in it is forced into the CSV
+    public void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+
+    // RECOVER__________________________________
+    // Brings the CSV in line with the log left by a run that didn't close cleanly. Returns what was done;
+    // does nothing when there is no log or its header is unreadable (the CSV was complete when it started).
+    public static Recovery recover(Path path, Path csv) throws IOException {
+        if (!Files.exists(path) || !Files.exists(csv)) {
+            return new Recovery(0, 0);
+        }
+        ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(path));
+        long checkpoint = readHeader(log);
+        if (checkpoint < 0) {
+            return new Recovery(0, 0);
+        }
+
+        // Read records until the end or the first torn one; keep only complete batches that follow on
+        // from each other in the CSV
+        List<long[]> committed = new ArrayList<>(); // {csvOffset, logPosition, length} per record
+        List<long[]> batch = new ArrayList<>();
+        long expectedOffset = checkpoint;
+        while (log.remaining() >= RECORD_HEADER_SIZE) {
+            int start = log.position();
+            int length = log.getInt();
+            byte flags = log.get();
+            long csvOffset = log.getLong();
+            int storedCrc = log.getInt();
+            if (length < 0 || length > log.remaining() || csvOffset != expectedOffset) {
+                break;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(log.array(), start + Integer.BYTES, 1 + Long.BYTES);
+            crc.update(log.array(), log.position(), length);
+            if ((int) crc.getValue() != storedCrc) {
+                break;
+            }
+            batch.add(new long[]{csvOffset, log.position(), length});
+            log.position(log.position() + length);
+            expectedOffset += length;
+            if ((flags & END_OF_BATCH) != 0) {
+                committed.addAll(batch);
+                batch.clear();
+            }
+        }
+        long committedEnd = committed.isEmpty() ? checkpoint
+                : committed.get(committed.size() - 1)[0] + committed.get(committed.size() - 1)[2];
+
+        try (FileChannel file = FileChannel.open(csv, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (file.size() < checkpoint) {
+                return new Recovery(0, 0); // the CSV was replaced since the log started - leave it alone
+            }
+
+            // Rewrite from the first committed record that isn't already in the CSV exactly
+            long replayedRows = 0;
+            boolean replaying = false;
+            for (long[] record : committed) {
+                ByteBuffer bytes = ByteBuffer.wrap(log.array(), (int) record[1], (int) record[2]);
+                if (!replaying && !matches(file, record[0], bytes.duplicate())) {
+                    replaying = true;
+                }
+                if (replaying) {
+                    file.truncate(record[0]);
+                    writeFully(file, bytes.duplicate(), record[0]);
+                    replayedRows += countLines(bytes);
+                }
+            }
+
+            long discarded = Math.max(0, file.size() - committedEnd);
+            file.truncate(committedEnd); // drop unfinished batches and torn lines
+            file.force(true);
+            return new Recovery(replayedRows, discarded);
+        }
+    }
+
+    // csvSize from the header, or -1 when the header is missing or damaged
+    private static long readHeader(ByteBuffer log) {
+        if (log.remaining() < HEADER_SIZE) {
+            return -1;
+        }
+        for (byte b : MAGIC) {
+            if (log.get() != b) {
+                return -1;
+            }
+        }
+        long csvSize = log.getLong();
+        int storedCrc = log.getInt();
+        return checksum(ByteBuffer.allocate(Long.BYTES).putLong(0, csvSize)) == storedCrc ? csvSize : -1;
+    }
+
+    // True when the CSV holds exactly these bytes at offset
+    private static boolean matches(FileChannel file, long offset, ByteBuffer bytes) throws IOException {
+        if (file.size() < offset + bytes.remaining()) {
+            return false;
+        }
+        ByteBuffer existing = ByteBuffer.allocate(bytes.remaining());
+        while (existing.hasRemaining()) {
+            if (file.read(existing, offset + existing.position()) < 0) {
+                return false;
+            }
+        }
+        return existing.flip().equals(bytes);
+    }
+
+    private static long countLines(ByteBuffer bytes) {
+        long lines = 0;
+        for (int i = bytes.position(); i < bytes.limit(); i++) {
+            if (bytes.get(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private static int checksum(ByteBuffer bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.pluralsight;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class BalancesTest {
+
+    private static final LocalDate FIRST = LocalDate.of(2024, 1, 1);
+
+    // RUNNING BALANCES___________________________
+    @Test
+    void runningBalancesArePrefixSumsWhereverRowsGo() {
+        Random random = new Random(17);
+        RunningBalances sums = new RunningBalances();
+        ArrayList<Long> amounts = new ArrayList<>();
+        RunningBalances early = null;
+        ArrayList<Long> earlyAmounts = null;
+        for (int i = 0; i < 500; i++) {
+            int position = i % 3 == 0 ? amounts.size() : random.nextInt(amounts.size() + 1); // ends and middles
+            long cents = random.nextInt(20_001) - 10_000;
+            sums.insert(position, cents);
+            amounts.add(position, cents);
+            if (i == 100) {
+                early = sums.snapshot();
+                earlyAmounts = new ArrayList<>(amounts);
+            }
+        }
+        long sum = 0;
+        for (int i = 0; i < amounts.size(); i++) {
+            sum += amounts.get(i);
+            assertEquals(sum, sums.through(i));
+        }
+        sum = 0; // a snapshot keeps the sums it was taken with
+        assertEquals(earlyAmounts.size(), early.size());
+        for (int i = 0; i < earlyAmounts.size(); i++) {
+            sum += earlyAmounts.get(i);
+            assertEquals(sum, early.through(i));
+        }
+        assertThrows(UnsupportedOperationException.class, () -> sums.snapshot().insert(0, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> sums.through(amounts.size()));
+    }
+
+    // BALANCES___________________________________
+    private static Transaction row(int day, int hour, long cents) {
+        return new Transaction(FIRST.plusDays(day), LocalTime.of(hour, 0), "row", "Bank", BigDecimal.valueOf(cents, 2));
+    }
+
+    private static long expectedBalance(List<Transaction> rows, LocalDate date) {
+        long balance = 0;
+        for (Transaction t : rows) {
+            if (!t.getDate().isAfter(date)) {
+                balance += t.getAmountCents();
+            }
+        }
+        return balance;
+    }
+
+    @Test
+    void balancesMatchSumsOfEveryRowOnOrBeforeTheDate() {
+        Random random = new Random(19);
+        ArrayList<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            rows.add(row(random.nextInt(90), 9, random.nextInt(20_001) - 10_000)); // many rows at the same time
+        }
+        LedgerStore store = new LedgerStore();
+        store.addAll(rows);
+        for (int i = 0; i < 100; i++) { // added one at a time, mostly into the past
+            Transaction t = row(random.nextInt(100), random.nextInt(2) * 9, random.nextInt(20_001) - 10_000);
+            store.add(t);
+            rows.add(t);
+        }
+
+        Balances balances = store.balances();
+        for (LocalDate day = FIRST.minusDays(2); day.isBefore(FIRST.plusDays(103)); day = day.plusDays(1)) {
+            assertEquals(expectedBalance(rows, day), balances.balanceCents(day), day.toString());
+        }
+        LocalDate start = FIRST.plusDays(10);
+        LocalDate end = FIRST.plusDays(70);
+        assertEquals(expectedBalance(rows, end) - expectedBalance(rows, start.minusDays(1)), balances.netFlowCents(start, end));
+        assertEquals(BigDecimal.valueOf(balances.balanceCents(end), 2), balances.balance(end));
+
+        // Each point's flow is the change from the one before; months are cut to the range
+        List<Balances.Point> daily = balances.daily(start, end);
+        assertEquals(61, daily.size());
+        long previous = expectedBalance(rows, start.minusDays(1));
+        for (Balances.Point point : daily) {
+            assertEquals(expectedBalance(rows, point.getEnd()), point.getBalanceCents());
+            assertEquals(point.getBalanceCents() - previous, point.getFlowCents());
+            previous = point.getBalanceCents();
+        }
+        List<Balances.Point> monthly = balances.monthly(start, end);
+        assertEquals(3, monthly.size());
+        assertEquals(start, monthly.get(0).getStart());
+        assertEquals(FIRST.plusMonths(1).minusDays(1), monthly.get(0).getEnd());
+        assertEquals(end, monthly.get(2).getEnd());
+        assertEquals(balances.netFlowCents(start, end), monthly.stream().mapToLong(Balances.Point::getFlowCents).sum());
+
+        // Rows kept elsewhere (cold months) add their balance on the date
+        Balances withCold = store.balances(date -> 1_000);
+        assertEquals(balances.balanceCents(end) + 1_000, withCold.balanceCents(end));
+    }
+
+    // A later write doesn't change balances already handed out
+    @Test
+    void balancesReadTheStoreAsItWas() {
+        LedgerStore store = new LedgerStore();
+        store.add(row(5, 9, 1_000));
+        Balances before = store.balances();
+        store.add(row(1, 9, 250));
+        assertEquals(1_000, before.balanceCents(FIRST.plusDays(10)));
+        assertEquals(1_250, store.balances().balanceCents(FIRST.plusDays(10)));
+        assertEquals(250, store.balances().balanceCents(FIRST.plusDays(1)));
+    }
+}
@@ -0,0 +1,61 @@
+package com.pluralsight;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BulkImportTest {
+
+    private static final String TWO_COFFEES = "2024-03-01|09:15:00|coffee|Cafe|-3.50\n"
+            + "2024-03-01|09:15:00|coffee|Cafe|-3.50\n"
+            + "2024-03-02|12:00:00|lunch|Cafe|-12.40\n";
+
+    // Identical rows in one file are separate transactions; importing the file again adds nothing
+    @Test
+    void identicalRowsInTheFileAreKeptAndReimportsSkipped(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("transactions.csv");
+        Files.writeString(csv, TransactionManager.HEADER + "\n");
+        Path export = dir.resolve("export.csv");
+        Files.writeString(export, TWO_COFFEES);
+
+        TransactionManager manager = new TransactionManager(csv.toString(), SyncPolicy.ALWAYS);
+        BulkImport.Result first = manager.importFile(export);
+        assertEquals(3, first.getImported());
+        assertEquals(0, first.getDuplicates());
+
+        BulkImport.Result again = manager.importFile(export);
+        assertEquals(0, again.getImported());
+        assertEquals(3, again.getDuplicates());
+
+        // One more coffee than the ledger has: only that one is new
+        Files.writeString(export, TWO_COFFEES + "2024-03-01|09:15:00|coffee|CAFE|-3.5\n");
+        BulkImport.Result third = manager.importFile(export);
+        assertEquals(1, third.getImported());
+        assertEquals(3, third.getDuplicates());
+        assertEquals(4, manager.getAll().size());
+        manager.close();
+    }
+
+    // Part cents are rejected like they are at the console, and amounts only match exactly
+    @Test
+    void partCentAmountsAreRejectedAndNeverMatch(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("transactions.csv");
+        Files.writeString(csv, TransactionManager.HEADER + "\n2024-03-01|09:15:00|coffee|Cafe|-3.499\n"); // older ledger row
+        Path export = dir.resolve("export.csv");
+        Files.writeString(export, "2024-03-01|09:15:00|coffee|Cafe|-3.50\n"
+                + "2024-03-01|09:15:00|coffee|Cafe|-3.501\n"
+                + "2024-03-02|12:00:00|lunch|Cafe|-12.400\n");
+
+        TransactionManager manager = new TransactionManager(csv.toString(), SyncPolicy.ALWAYS);
+        BulkImport.Result result = manager.importFile(export);
+        assertEquals(2, result.getImported()); // -3.50 isn't the stored -3.499, and -12.400 is whole cents
+        assertEquals(0, result.getDuplicates());
+        assertEquals(1, result.getRejects().size());
+        assertEquals(2, result.getRejects().get(0).getLineNumber());
+        assertEquals(3, manager.getAll().size());
+        manager.close();
+    }
+}
@@ -0,0 +1,62 @@
+package com.pluralsight;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ColumnarRowsTest {
+
+    private static Transaction row(int day, String amount) {
+        return new Transaction(LocalDate.of(2024, 1, day), LocalTime.NOON, "row " + day, "Bank", new BigDecimal(amount));
+    }
+
+    @Test
+    void amountsGiveBackExactlyWhatWasStored() {
+        String manyZeros = "5." + "0".repeat(130); // whole cents, but a scale past a byte
+        List<String> amounts = List.of("1.00", "8", "-89.50", "1E+3", manyZeros, "7.0000");
+        ColumnarRows rows = new ColumnarRows(new VendorDictionary());
+        for (int i = 0; i < amounts.size(); i++) {
+            rows.insert(0, row(i + 1, amounts.get(i))); // always at the front, so every column is copied with a gap
+        }
+        for (int i = 0; i < amounts.size(); i++) {
+            Transaction t = rows.get(amounts.size() - 1 - i);
+            assertEquals(new BigDecimal(amounts.get(i)), t.getAmount()); // same value and scale
+            assertEquals(row(1, amounts.get(i)).getAmountCents(), rows.amountCents(amounts.size() - 1 - i));
+        }
+    }
+
+    @Test
+    void snapshotsKeepTheirRowsAfterLaterInserts() {
+        ColumnarRows rows = new ColumnarRows(new VendorDictionary());
+        rows.insert(0, row(1, "1.00"));
+        LedgerRows before = rows.snapshot();
+        rows.insert(0, row(2, "5." + "0".repeat(130)));
+        assertEquals(1, before.size());
+        assertEquals(new BigDecimal("1.00"), before.get(0).getAmount());
+        assertEquals(2, rows.size());
+    }
+
+    // A row the CSV accepted has to load in every layout, every time
+    @Test
+    void columnarLedgerStartsWithAnAmountOfHugeScale(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("transactions.csv");
+        String amount = "5." + "0".repeat(130);
+        Files.writeString(csv, TransactionManager.HEADER + "\n2024-01-02|10:00:00|fee|Bank|" + amount + "\n");
+        for (int start = 0; start < 2; start++) {
+            TransactionManager manager = new TransactionManager(csv.toString(), SyncPolicy.ALWAYS, StorageLayout.COLUMNAR);
+            assertEquals(new BigDecimal(amount), manager.getAll().get(0).getAmount());
+            manager.add(row(3, amount));
+            manager.close();
+        }
+        TransactionManager manager = new TransactionManager(csv.toString(), SyncPolicy.ALWAYS, StorageLayout.COLUMNAR);
+        assertEquals(3, manager.getAll().size());
+        manager.close();
+    }
+}
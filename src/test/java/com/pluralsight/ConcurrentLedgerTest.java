@@ -0,0 +1,125 @@
+package com.pluralsight;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Many writers and readers on one ledger at once. Every write must land (in memory and in the CSV), and
+// each read must see one consistent moment: totals never count rows the lists can't show, lists never
+// change once returned, and a search only finds rows its own snapshot has.
+class ConcurrentLedgerTest {
+
+    private static final int WRITERS = 4;
+    private static final int ROWS_PER_WRITER = 1_000;
+    private static final int READERS = 4;
+    private static final LocalDate FIRST = LocalDate.of(2000, 1, 1);
+    private static final LocalDate LAST = LocalDate.of(2100, 12, 31);
+
+    @Test
+    void readersSeeConsistentSnapshotsAndNoWriteIsLost(@TempDir Path dir) throws Exception {
+        for (StorageLayout layout : StorageLayout.values()) {
+            Path csv = dir.resolve(layout + ".csv");
+            Files.writeString(csv, TransactionManager.HEADER + "\n"); // an existing file gets no sample rows
+            TransactionManager manager = new TransactionManager(csv.toString(), SyncPolicy.NEVER, layout);
+            ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+            AtomicBoolean writing = new AtomicBoolean(true);
+
+            ArrayList<Future<Long>> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                writers.add(pool.submit(() -> write(manager, writer)));
+            }
+            ArrayList<Future<Integer>> readers = new ArrayList<>();
+            for (int r = 0; r < READERS; r++) {
+                readers.add(pool.submit(() -> read(manager, writing)));
+            }
+
+            long expectedCents = 0;
+            for (Future<Long> writer : writers) {
+                expectedCents += writer.get(2, TimeUnit.MINUTES);
+            }
+            writing.set(false);
+            for (Future<Integer> reader : readers) {
+                assertTrue(reader.get(1, TimeUnit.MINUTES) > 0, "reader never ran");
+            }
+            pool.shutdown();
+
+            int expectedRows = WRITERS * ROWS_PER_WRITER;
+            assertEquals(expectedRows, manager.getAll().size(), layout.toString());
+            assertEquals(expectedRows, manager.getTotals(FIRST, LAST).getCount(), layout.toString());
+            assertEquals(expectedCents, manager.getTotals(FIRST, LAST).getNetCents(), layout.toString());
+            assertEquals(expectedRows, manager.search("row").size(), layout.toString());
+            manager.close();
+
+            TransactionManager reopened = new TransactionManager(csv.toString(), SyncPolicy.NEVER, layout);
+            assertEquals(expectedRows, reopened.getAll().size(), layout.toString());
+            assertEquals(expectedCents, reopened.getTotals(FIRST, LAST).getNetCents(), layout.toString());
+            reopened.close();
+        }
+    }
+
+    // Adds rows on random dates (so many land before existing rows) and returns their net in cents
+    private static long write(TransactionManager manager, int writer) {
+        Random random = new Random(writer);
+        long net = 0;
+        for (int i = 0; i < ROWS_PER_WRITER; i++) {
+            long cents = (random.nextInt(100_000) + 1) * (random.nextBoolean() ? 1 : -1);
+            LocalDate date = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(366));
+            Transaction t = new Transaction(date, LocalTime.ofSecondOfDay(random.nextInt(86_400)),
+                    "row " + writer + "-" + i, "Vendor " + (i % 7), BigDecimal.valueOf(cents, 2));
+            assertTrue(manager.add(t));
+            net += cents;
+        }
+        return net;
+    }
+
+    // Checks snapshots until the writers are done; returns how many rounds it ran
+    private static int read(TransactionManager manager, AtomicBoolean writing) {
+        int rounds = 0;
+        while (writing.get() || rounds == 0) {
+            // Totals first, then the rows: the rows can only have grown since
+            long counted = manager.getTotals(FIRST, LAST).getCount();
+            List<Transaction> all = manager.getAll();
+            int size = all.size();
+            assertTrue(counted <= size, "totals counted " + counted + " rows but only " + size + " are visible");
+
+            // A returned list is a snapshot: same size and order however long it is read
+            Transaction newer = null;
+            for (Transaction t : all) {
+                assertTrue(newer == null || LedgerStore.CHRONOLOGICAL.compare(t, newer) <= 0, "rows out of order");
+                newer = t;
+            }
+            assertEquals(size, all.size());
+
+            // A search runs on its own snapshot, taken between these two
+            List<Transaction> found = manager.search("row");
+            int after = manager.getAll().size();
+            assertTrue(found.size() >= size && found.size() <= after,
+                    "search found " + found.size() + " rows, expected " + size + " to " + after);
+            for (Transaction t : found) {
+                assertTrue(t.getDescription().startsWith("row "));
+            }
+
+            // So does a query's totals
+            long queried = manager.query().between(FIRST, LAST).totals().getCount();
+            assertTrue(queried >= size && queried <= manager.getAll().size(), "query totals counted " + queried);
+            rounds++;
+        }
+        return rounds;
+    }
+}
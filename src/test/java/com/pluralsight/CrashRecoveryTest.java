@@ -0,0 +1,211 @@
+package com.pluralsight;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32C;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Fault injection for the journal: the process killed mid-write, a torn last line, a batch cut in half,
+// and CSV writes that never reached the disk. After each, the next start must hold every committed row,
+// nothing uncommitted, and only whole lines.
+// A journal that is simply never closed stands in for a crash - FileChannel writes go straight to the OS.
+class CrashRecoveryTest {
+
+    private static Transaction row(int i) {
+        return new Transaction(LocalDate.of(2024, 1, 1).plusDays(i % 300), LocalTime.ofSecondOfDay(i % 86_400),
+                "row " + i, "Vendor " + (i % 5), BigDecimal.valueOf(i + 1, 2));
+    }
+
+    private static List<Transaction> rows(int from, int to) {
+        ArrayList<Transaction> rows = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            rows.add(row(i));
+        }
+        return rows;
+    }
+
+    // Every line parses and the rows are exactly row 0 .. row count-1
+    private static void assertHoldsRows(Path csv, int count) throws Exception {
+        TransactionLoader.Result loaded = TransactionLoader.load(csv, new VendorDictionary());
+        assertEquals(List.of(), loaded.getErrors());
+        assertEquals(count, loaded.getTransactions().size());
+        boolean[] seen = new boolean[count];
+        for (Transaction t : loaded.getTransactions()) {
+            seen[Integer.parseInt(t.getDescription().substring("row ".length()))] = true;
+        }
+        for (int i = 0; i < count; i++) {
+            assertTrue(seen[i], "row " + i + " is missing");
+        }
+        byte[] bytes = Files.readAllBytes(csv);
+        assertEquals('\n', bytes[bytes.length - 1], "file ends mid-line");
+    }
+
+    // KILLED WHILE WRITING_______________________
+    // Adds rows one at a time, printing each index once add() has returned (so it is committed)
+    static class Writer {
+        public static void main(String[] args) {
+            TransactionManager manager = new TransactionManager(args[0], SyncPolicy.ALWAYS);
+            for (int i = 0; ; i++) {
+                if (!manager.add(row(i))) {
+                    System.exit(1);
+                }
+                System.out.println("committed " + i);
+            }
+        }
+    }
+
+    // Kills the writer at a random point, several times over. Every row it acknowledged must be there after
+    // recovery; rows it committed but hadn't printed yet may be there too.
+    @Test
+    void killedProcessKeepsEveryAcknowledgedRow(@TempDir Path dir) throws Exception {
+        Random random = new Random();
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        for (int run = 0; run < 5; run++) {
+            Path csv = Files.createDirectories(dir.resolve("run" + run)).resolve("transactions.csv");
+            Files.writeString(csv, TransactionManager.HEADER + "\n");
+            Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    Writer.class.getName(), csv.toString()).redirectErrorStream(true).start();
+
+            // Read the output on a thread of its own, so the writer never blocks on a full pipe
+            AtomicInteger acknowledged = new AtomicInteger(-1);
+            CountDownLatch started = new CountDownLatch(1);
+            Thread reader = new Thread(() -> {
+                try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = out.readLine()) != null) {
+                        if (line.startsWith("committed ")) {
+                            acknowledged.set(Integer.parseInt(line.substring("committed ".length())));
+                            started.countDown();
+                        }
+                    }
+                } catch (IOException e) {
+                    // the pipe closes when the process dies
+                }
+            });
+            reader.start();
+            assertTrue(started.await(30, TimeUnit.SECONDS), "writer never started");
+            Thread.sleep(random.nextInt(300));
+            process.destroyForcibly(); // SIGKILL: no shutdown hooks, no close, possibly mid-append
+            assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+            reader.join(); // reads whatever the writer printed before it died
+
+            TransactionJournal journal = new TransactionJournal(csv, TransactionManager.HEADER, SyncPolicy.ALWAYS);
+            journal.close();
+            int count = TransactionLoader.load(csv, new VendorDictionary()).getTransactions().size();
+            assertTrue(count >= acknowledged.get() + 1, count + " rows after " + acknowledged.get() + " acknowledged");
+            assertHoldsRows(csv, count);
+        }
+    }
+
+    // TORN LAST LINE_____________________________
+    @Test
+    void tornLastLineIsCutOff(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("transactions.csv");
+        TransactionJournal crashed = new TransactionJournal(csv, TransactionManager.HEADER, SyncPolicy.ALWAYS);
+        crashed.appendAll(rows(0, 10));
+        long committed = Files.size(csv);
+        Files.writeString(csv, "2024-05-0", StandardOpenOption.APPEND); // half a row, then the crash
+
+        TransactionJournal journal = new TransactionJournal(csv, TransactionManager.HEADER, SyncPolicy.ALWAYS);
+        assertEquals(9, journal.getRecovery().getDiscardedBytes());
+        assertEquals(committed, Files.size(csv));
+        journal.appendAll(rows(10, 11)); // lands on a line of its own
+        journal.close();
+        assertHoldsRows(csv, 11);
+    }
+
+    // PARTIAL BATCH______________________________
+    // The first slice of a batch reached the log and the CSV, but the record ending the batch never did
+    @Test
+    void batchWithoutItsLastRecordIsDroppedWhole(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("transactions.csv");
+        TransactionJournal crashed = new TransactionJournal(csv, TransactionManager.HEADER, SyncPolicy.ALWAYS);
+        crashed.appendAll(rows(0, 10));
+        long committed = Files.size(csv);
+
+        StringBuilder slice = new StringBuilder();
+        for (Transaction t : rows(10, 15)) {
+            TransactionCodec.appendCSV(t, slice).append(System.lineSeparator());
+        }
+        byte[] bytes = slice.toString().getBytes(StandardCharsets.UTF_8);
+        Files.write(WriteAheadLog.pathFor(csv), walRecord(committed, bytes, false), StandardOpenOption.APPEND);
+        Files.write(csv, bytes, StandardOpenOption.APPEND);
+
+        TransactionJournal journal = new TransactionJournal(csv, TransactionManager.HEADER, SyncPolicy.ALWAYS);
+        assertEquals(bytes.length, journal.getRecovery().getDiscardedBytes());
+        journal.close();
+        assertEquals(committed, Files.size(csv));
+        assertHoldsRows(csv, 10);
+    }
+
+    // The same crash one record later: the batch is complete in the log, so it stays
+    @Test
+    void batchWithItsLastRecordIsKept(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("transactions.csv");
+        TransactionJournal crashed = new TransactionJournal(csv, TransactionManager.HEADER, SyncPolicy.ALWAYS);
+        crashed.appendAll(rows(0, 10));
+        StringBuilder slice = new StringBuilder();
+        for (Transaction t : rows(10, 15)) {
+            TransactionCodec.appendCSV(t, slice).append(System.lineSeparator());
+        }
+        byte[] bytes = slice.toString().getBytes(StandardCharsets.UTF_8);
+        Files.write(WriteAheadLog.pathFor(csv), walRecord(Files.size(csv), bytes, true), StandardOpenOption.APPEND);
+
+        TransactionJournal journal = new TransactionJournal(csv, TransactionManager.HEADER, SyncPolicy.ALWAYS);
+        assertEquals(5, journal.getRecovery().getReplayedRows()); // the CSV never got them
+        journal.close();
+        assertHoldsRows(csv, 15);
+    }
+
+    // A record as WriteAheadLog.append writes it
+    private static byte[] walRecord(long csvOffset, byte[] bytes, boolean endsBatch) {
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + 1 + Long.BYTES + Integer.BYTES + bytes.length);
+        record.putInt(bytes.length).put((byte) (endsBatch ? 1 : 0)).putLong(csvOffset);
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), Integer.BYTES, 1 + Long.BYTES);
+        crc.update(bytes);
+        record.putInt((int) crc.getValue()).put(bytes);
+        return record.array();
+    }
+
+    // LOST CSV WRITES____________________________
+    // The log was forced but the CSV's own writes never made it to disk: they are replayed from the log
+    @Test
+    void committedRowsMissingFromTheCsvAreReplayed(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("transactions.csv");
+        TransactionJournal crashed = new TransactionJournal(csv, TransactionManager.HEADER, SyncPolicy.ALWAYS);
+        long start = Files.size(csv);
+        crashed.appendAll(rows(0, 5));
+        crashed.appendAll(rows(5, 20));
+        try (FileChannel file = FileChannel.open(csv, StandardOpenOption.WRITE)) {
+            file.truncate(start + 40); // only part of the first batch reached the disk
+        }
+
+        TransactionJournal journal = new TransactionJournal(csv, TransactionManager.HEADER, SyncPolicy.ALWAYS);
+        assertEquals(20, journal.getRecovery().getReplayedRows());
+        journal.close();
+        assertHoldsRows(csv, 20);
+        assertFalse(Files.exists(WriteAheadLog.pathFor(csv)), "a clean close removes the log");
+    }
+}
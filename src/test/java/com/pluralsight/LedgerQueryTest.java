@@ -0,0 +1,194 @@
+package com.pluralsight;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Every query is checked against the same conditions applied by hand to the whole ledger
+class LedgerQueryTest {
+
+    private static final LocalDate FIRST = LocalDate.of(2024, 1, 1);
+    private static final Comparator<Transaction> BY_AMOUNT = Comparator.comparing(Transaction::getAmount);
+
+    // Rows over a year with many equal dates and times, then some added out of order one at a time
+    private static LedgerStore store(StorageLayout layout) {
+        Random random = new Random(11);
+        ArrayList<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            rows.add(row(i, random));
+        }
+        LedgerStore store = new LedgerStore(layout);
+        store.addAll(rows);
+        for (int i = 2_000; i < 2_100; i++) {
+            store.add(row(i, random));
+        }
+        return store;
+    }
+
+    private static Transaction row(int i, Random random) {
+        String vendor = i % 7 == 0 ? "VENDOR 1" : "Vendor " + random.nextInt(6); // one vendor in two spellings
+        long cents = random.nextInt(10) == 0 ? 0 : random.nextInt(10_001) - 5_000;
+        return new Transaction(FIRST.plusDays(random.nextInt(366)), LocalTime.of(random.nextInt(3) * 8, 0),
+                "row " + i, vendor, BigDecimal.valueOf(cents, 2));
+    }
+
+    // The rows newest first, filtered by hand
+    private static List<Transaction> expected(List<Transaction> oldestFirst, Predicate<Transaction> condition,
+                                              boolean newestFirst) {
+        ArrayList<Transaction> matches = new ArrayList<>();
+        for (Transaction t : oldestFirst) {
+            if (condition.test(t)) {
+                matches.add(t);
+            }
+        }
+        if (newestFirst) {
+            Collections.reverse(matches);
+        }
+        return matches;
+    }
+
+    private static boolean between(Transaction t, LocalDate start, LocalDate end) {
+        return (start == null || !t.getDate().isBefore(start)) && (end == null || !t.getDate().isAfter(end));
+    }
+
+    private static List<String> descriptions(List<Transaction> rows) {
+        return rows.stream().map(Transaction::getDescription).collect(Collectors.toList());
+    }
+
+    // Runs every terminal on a fresh copy of the query and compares it with the expected rows
+    private static void check(String name, Supplier<LedgerQuery> query, List<Transaction> expected) {
+        assertEquals(descriptions(expected), descriptions(query.get().list()), name);
+        assertEquals(descriptions(expected), descriptions(query.get().stream().collect(Collectors.toList())), name);
+
+        Rollups.Totals totals = new Rollups.Totals();
+        TreeMap<YearMonth, Rollups.Totals> byMonth = new TreeMap<>();
+        for (Transaction t : expected) {
+            totals.add(t.getAmountCents());
+            byMonth.computeIfAbsent(YearMonth.from(t.getDate()), m -> new Rollups.Totals()).add(t.getAmountCents());
+        }
+        assertEquals(totals.toString(), query.get().totals().toString(), name);
+        assertEquals(expected.size(), query.get().count(), name);
+        assertEquals(totals.getNet(), query.get().sum(), name);
+        Map<YearMonth, Rollups.Totals> actualByMonth = query.get().totalsByMonth();
+        assertEquals(byMonth.toString(), actualByMonth.toString(), name);
+    }
+
+    @Test
+    void queriesMatchAFilterOverEveryRow() {
+        for (StorageLayout layout : StorageLayout.values()) {
+            LedgerStore store = store(layout);
+            List<Transaction> all = store.oldestFirst();
+            LocalDate start = FIRST.plusDays(40);
+            LocalDate end = FIRST.plusDays(200);
+
+            for (boolean newest : new boolean[] {true, false}) {
+                String order = layout + (newest ? " newest first" : " oldest first");
+                // Vendor postings, cut to the date range by binary search
+                check(order + " vendor in range", () -> ordered(new LedgerQuery(store), newest)
+                                .vendor("vendor 1").between(start, end),
+                        expected(all, t -> t.getVendor().equalsIgnoreCase("vendor 1") && between(t, start, end), newest));
+                check(order + " vendor from start", () -> ordered(new LedgerQuery(store), newest)
+                                .vendor("Vendor 3").between(start, null),
+                        expected(all, t -> t.getVendor().equals("Vendor 3") && between(t, start, null), newest));
+                check(order + " unknown vendor", () -> ordered(new LedgerQuery(store), newest).vendor("nobody"),
+                        List.of());
+                // Dates alone: totals from the rollups, rows from the sorted store
+                check(order + " dates", () -> ordered(new LedgerQuery(store), newest).between(start, end),
+                        expected(all, t -> between(t, start, end), newest));
+                check(order + " everything", () -> ordered(new LedgerQuery(store), newest),
+                        expected(all, t -> true, newest));
+                check(order + " payments", () -> ordered(new LedgerQuery(store), newest).payments().between(null, end),
+                        expected(all, t -> t.getAmountCents() < 0 && between(t, null, end), newest));
+                check(order + " deposits", () -> ordered(new LedgerQuery(store), newest).deposits(),
+                        expected(all, t -> t.getAmountCents() > 0, newest));
+                // Part-cent bounds round inwards: -10.005 allows -10.00 but not -10.01, 5.999 allows 5.99
+                check(order + " amounts", () -> ordered(new LedgerQuery(store), newest)
+                                .amountBetween(new BigDecimal("-10.005"), new BigDecimal("5.999")),
+                        expected(all, t -> t.getAmountCents() >= -1_000 && t.getAmountCents() <= 599, newest));
+                check(order + " text", () -> ordered(new LedgerQuery(store), newest).descriptionContains("ROW 1"),
+                        expected(all, t -> t.getDescription().startsWith("row 1"), newest));
+
+                // A limit takes the first rows in the query's order, and the totals are of just those
+                List<Transaction> dated = expected(all, t -> between(t, start, end), newest);
+                check(order + " limit", () -> ordered(new LedgerQuery(store), newest).between(start, end).limit(9),
+                        dated.subList(0, 9));
+                check(order + " parallel", () -> ordered(new LedgerQuery(store), newest).payments().parallel(),
+                        expected(all, t -> t.getAmountCents() < 0, newest));
+            }
+
+            // sortedBy sorts all the matches (stably, from newest first) before the limit
+            ArrayList<Transaction> sorted = new ArrayList<>(expected(all, t -> t.getVendor().equals("Vendor 2"), true));
+            sorted.sort(BY_AMOUNT);
+            check(layout + " sorted", () -> new LedgerQuery(store).vendor("Vendor 2").sortedBy(BY_AMOUNT).limit(7),
+                    sorted.subList(0, 7));
+        }
+    }
+
+    private static LedgerQuery ordered(LedgerQuery query, boolean newestFirst) {
+        return newestFirst ? query.newestFirst() : query.oldestFirst();
+    }
+
+    // PARTITIONED___________________________________
+    // The same queries across month files and memory, against the ledger held whole in memory
+    @Test
+    void partitionedQueriesMatchAFilterOverEveryRow(@TempDir Path dir) throws Exception {
+        LocalDate oldest = LocalDate.now().minusYears(2).withDayOfMonth(1);
+        Random random = new Random(13);
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add(TransactionManager.HEADER);
+        for (int i = 0; i < 1_500; i++) {
+            lines.add(oldest.plusDays(i / 2) + "|" + LocalTime.of(i % 3 * 8, 0) + ":00|row " + i + "|Vendor " + (i % 4)
+                    + "|" + BigDecimal.valueOf(random.nextInt(10_001) - 5_000, 2));
+        }
+        Path csv = Files.createDirectories(dir.resolve("parts")).resolve("transactions.csv");
+        Files.write(csv, lines);
+        Path plainCsv = Files.copy(csv, Files.createDirectories(dir.resolve("plain")).resolve("transactions.csv"));
+        TransactionManager partitioned = new TransactionManager(csv.toString(), SyncPolicy.NEVER, StorageLayout.ROWS, true);
+        TransactionManager plain = new TransactionManager(plainCsv.toString(), SyncPolicy.NEVER);
+        for (int i = 0; i < 12; i++) { // backdated among the month files' rows, some at equal times
+            Transaction t = new Transaction(oldest.plusDays(i * 31), LocalTime.of(8, 0), "late " + i, "Vendor 1",
+                    BigDecimal.valueOf(i * 100 - 600, 2));
+            partitioned.add(t);
+            plain.add(t);
+        }
+
+        ArrayList<Transaction> all = new ArrayList<>(plain.getAll());
+        Collections.reverse(all);
+        LocalDate start = oldest.plusMonths(3).plusDays(5);
+        LocalDate end = LocalDate.now().minusMonths(2);
+        for (boolean newest : new boolean[] {true, false}) {
+            String order = newest ? "newest first" : "oldest first";
+            check(order + " vendor", () -> ordered(partitioned.query(), newest).vendor("vendor 1"),
+                    expected(all, t -> t.getVendor().equals("Vendor 1"), newest));
+            check(order + " dates", () -> ordered(partitioned.query(), newest).between(start, end),
+                    expected(all, t -> between(t, start, end), newest));
+            check(order + " payments limit", () -> ordered(partitioned.query(), newest).payments().between(null, end).limit(30),
+                    expected(all, t -> t.getAmountCents() < 0 && between(t, null, end), newest).subList(0, 30));
+            check(order + " amounts", () -> ordered(partitioned.query(), newest)
+                            .amountBetween(new BigDecimal("-0.995"), new BigDecimal("0.5")),
+                    expected(all, t -> t.getAmountCents() >= -99 && t.getAmountCents() <= 50, newest));
+        }
+        ArrayList<Transaction> sorted = new ArrayList<>(expected(all, t -> t.getAmountCents() > 0, true));
+        sorted.sort(BY_AMOUNT.reversed());
+        check("sorted", () -> partitioned.query().deposits().sortedBy(BY_AMOUNT.reversed()).limit(12), sorted.subList(0, 12));
+        partitioned.close();
+        plain.close();
+    }
+}
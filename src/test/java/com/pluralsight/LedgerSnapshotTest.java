@@ -0,0 +1,48 @@
+package com.pluralsight;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LedgerSnapshotTest {
+
+    // An untidy CSV is compacted in the background right after loading; a snapshot written then has to
+    // describe the compacted file, or the next start ignores it and parses the CSV after all
+    @Test
+    void snapshotWrittenAfterLoadMatchesTheCompactedCsv(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("transactions.csv");
+        StringBuilder text = new StringBuilder(TransactionManager.HEADER).append('\n');
+        for (int i = 0; i < 20_000; i++) {
+            text.append("2024-01-").append(String.format("%02d", 1 + i % 28)).append("|10:00:00|row ").append(i)
+                    .append("|Vendor|1.00\n");
+            if (i % 100 == 0) {
+                text.append('\n'); // blank lines make the file untidy
+            }
+        }
+        Files.writeString(csv, text);
+
+        TransactionManager manager = new TransactionManager(csv.toString(), SyncPolicy.ALWAYS);
+        manager.writeSnapshot();
+        manager.close();
+
+        List<Transaction> rows = LedgerSnapshot.read(LedgerSnapshot.pathFor(csv), csv, new VendorDictionary());
+        assertNotNull(rows, "snapshot no longer matches the CSV");
+        assertEquals(20_000, rows.size());
+    }
+
+    @Test
+    void changedCsvMakesTheSnapshotStale(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("transactions.csv");
+        TransactionManager manager = new TransactionManager(csv.toString(), SyncPolicy.ALWAYS);
+        manager.writeSnapshot();
+        manager.close();
+        Files.writeString(csv, "2024-01-01|10:00:00|added by hand|Joe|5.00\n", java.nio.file.StandardOpenOption.APPEND);
+        assertNull(LedgerSnapshot.read(LedgerSnapshot.pathFor(csv), csv, new VendorDictionary()));
+    }
+}
@@ -0,0 +1,237 @@
+package com.pluralsight;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// A partitioned ledger has to answer exactly like the same rows kept in one file and in memory
+class PartitionedLedgerTest {
+
+    private static final LocalDate OLDEST = LocalDate.now().minusYears(3).withDayOfMonth(1);
+    private static final String MALFORMED = "2021-13-01|10:00:00|typo in the month|Bank|1.00";
+
+    // Rows spread over the last three years, in date order, plus one malformed line
+    private static Path writeLedger(Path csv, int rows) throws Exception {
+        Random random = new Random(3);
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add(TransactionManager.HEADER);
+        long days = LocalDate.now().toEpochDay() - OLDEST.toEpochDay();
+        for (int i = 0; i < rows; i++) {
+            LocalDate date = OLDEST.plusDays(days * i / rows);
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(20_000) - 10_000, 2);
+            lines.add(date + "|" + String.format("%02d:00:00", i % 24) + "|row " + i + "|Vendor " + (i % 9) + "|" + amount);
+            if (i == rows / 2) {
+                lines.add(MALFORMED);
+            }
+        }
+        Files.createDirectories(csv.getParent());
+        Files.write(csv, lines);
+        return csv;
+    }
+
+    private static List<String> descriptions(List<Transaction> rows) {
+        ArrayList<String> descriptions = new ArrayList<>(rows.size());
+        for (Transaction t : rows) {
+            descriptions.add(t.getDescription());
+        }
+        return descriptions;
+    }
+
+    @Test
+    void archivingKeepsMalformedLinesInTheCsv(@TempDir Path dir) throws Exception {
+        Path csv = writeLedger(dir.resolve("transactions.csv"), 2_000);
+        TransactionManager manager = new TransactionManager(csv.toString(), SyncPolicy.ALWAYS, StorageLayout.ROWS, true);
+        manager.close();
+        assertTrue(Files.readAllLines(csv).contains(MALFORMED), "the rewrite lost the malformed line");
+        assertTrue(Files.isDirectory(LedgerPartitions.pathFor(csv)));
+
+        TransactionManager reopened = new TransactionManager(csv.toString(), SyncPolicy.ALWAYS, StorageLayout.ROWS, true);
+        assertEquals(2_000, reopened.getAll().size());
+        reopened.close();
+        assertTrue(Files.readAllLines(csv).contains(MALFORMED));
+    }
+
+    @Test
+    void listsMatchTheSameLedgerInMemory(@TempDir Path dir) throws Exception {
+        Path csv = writeLedger(dir.resolve("parts/transactions.csv"), 3_000);
+        Path plainCsv = Files.copy(csv, Files.createDirectories(dir.resolve("plain")).resolve("transactions.csv"));
+        TransactionManager partitioned = new TransactionManager(csv.toString(), SyncPolicy.NEVER, StorageLayout.ROWS, true);
+        TransactionManager plain = new TransactionManager(plainCsv.toString(), SyncPolicy.NEVER);
+
+        // Backdated into a cold month while running, so memory and the month files really interleave
+        for (int i = 0; i < 20; i++) {
+            Transaction t = new Transaction(OLDEST.plusDays(i * 17), LocalTime.of(12, 30), "late " + i, "Vendor 1",
+                    BigDecimal.valueOf(i % 2 == 0 ? 250 : -250, 2));
+            partitioned.add(t);
+            plain.add(t);
+        }
+
+        assertEquals(descriptions(plain.getAll()), descriptions(partitioned.getAll()));
+        assertEquals(descriptions(plain.getDeposits()), descriptions(partitioned.getDeposits()));
+        assertEquals(descriptions(plain.getPayments()), descriptions(partitioned.getPayments()));
+        assertEquals(descriptions(plain.getByVendor("vendor 1")), descriptions(partitioned.getByVendor("vendor 1")));
+        LocalDate from = OLDEST.plusMonths(2);
+        LocalDate to = LocalDate.now().minusMonths(1);
+        assertEquals(descriptions(plain.getByDateRange(from, to)), descriptions(partitioned.getByDateRange(from, to)));
+
+        // Rows read out of order come back the same as in order
+        List<Transaction> all = partitioned.getAll();
+        List<String> inOrder = descriptions(all);
+        Random random = new Random(5);
+        for (int i = 0; i < 2_000; i++) {
+            int index = random.nextInt(all.size());
+            assertEquals(inOrder.get(index), all.get(index).getDescription());
+        }
+        partitioned.close();
+        plain.close();
+    }
+
+    // With room for one month in the cache, the views reopen months as they are read
+    @Test
+    void viewsReadMonthsEvictedFromTheCache(@TempDir Path dir) throws Exception {
+        Path csv = writeLedger(dir.resolve("transactions.csv"), 3_000);
+        new TransactionManager(csv.toString(), SyncPolicy.NEVER, StorageLayout.ROWS, true).close();
+        LedgerPartitions roomy = new LedgerPartitions(LedgerPartitions.pathFor(csv), StorageLayout.ROWS, 1L << 30);
+        LedgerPartitions tight = new LedgerPartitions(LedgerPartitions.pathFor(csv), StorageLayout.ROWS, 1);
+
+        assertEquals(descriptions(roomy.newestFirst(null, null)), descriptions(tight.newestFirst(null, null)));
+        assertEquals(descriptions(roomy.oldestFirstWithSign(-1)), descriptions(tight.oldestFirstWithSign(-1)));
+        assertEquals(descriptions(roomy.search("row")), descriptions(tight.search("row")));
+        List<Transaction> all = tight.newestFirstForVendor("vendor 4");
+        List<String> inOrder = descriptions(roomy.newestFirstForVendor("vendor 4"));
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            int index = random.nextInt(all.size());
+            assertEquals(inOrder.get(index), all.get(index).getDescription());
+        }
+    }
+
+    @Test
+    void importSkipsRowsAlreadyInTheMonthFiles(@TempDir Path dir) throws Exception {
+        Path csv = writeLedger(dir.resolve("transactions.csv"), 1_000);
+        List<String> original = Files.readAllLines(csv);
+        Path export = dir.resolve("export.csv");
+        ArrayList<String> rows = new ArrayList<>(original.subList(1, original.size()));
+        rows.remove(MALFORMED);
+        Files.write(export, rows);
+
+        TransactionManager manager = new TransactionManager(csv.toString(), SyncPolicy.ALWAYS, StorageLayout.ROWS, true);
+        BulkImport.Result result = manager.importFile(export);
+        assertEquals(0, result.getImported());
+        assertEquals(1_000, result.getDuplicates());
+        assertEquals(1_000, manager.getAll().size());
+        manager.close();
+    }
+
+    @Test
+    void queriesOverMonthFilesMatchTheSameLedgerInMemory(@TempDir Path dir) throws Exception {
+        Path csv = writeLedger(dir.resolve("parts/transactions.csv"), 3_000);
+        Path plainCsv = Files.copy(csv, Files.createDirectories(dir.resolve("plain")).resolve("transactions.csv"));
+        TransactionManager partitioned = new TransactionManager(csv.toString(), SyncPolicy.NEVER, StorageLayout.ROWS, true);
+        TransactionManager plain = new TransactionManager(plainCsv.toString(), SyncPolicy.NEVER);
+        for (int i = 0; i < 10; i++) {
+            Transaction t = new Transaction(OLDEST.plusDays(i * 40), LocalTime.of(i, 0), "late " + i, "Vendor 2",
+                    BigDecimal.valueOf(-100 * (i + 1), 2));
+            partitioned.add(t);
+            plain.add(t);
+        }
+
+        LocalDate from = OLDEST.plusMonths(5).plusDays(3);
+        List<Function<TransactionManager, LedgerQuery>> queries = List.of(
+                m -> m.query().vendor("vendor 2"),
+                m -> m.query().vendor("Vendor 2").between(from, null).oldestFirst(),
+                m -> m.query().payments().amountBetween(new BigDecimal("-50"), null).limit(25),
+                m -> m.query().deposits().oldestFirst().limit(40),
+                m -> m.query().descriptionContains("ROW 1").between(null, LocalDate.now().minusYears(1)),
+                m -> m.query().sortedBy(Comparator.comparing(Transaction::getAmount)).limit(10),
+                m -> m.query().between(from, from.plusMonths(7)));
+        for (int i = 0; i < queries.size(); i++) {
+            LedgerQuery expected = queries.get(i).apply(plain);
+            LedgerQuery actual = queries.get(i).apply(partitioned);
+            assertEquals(descriptions(expected.list()), descriptions(actual.list()), "query " + i);
+            assertEquals(expected.totals().toString(), actual.totals().toString(), "query " + i);
+            assertEquals(expected.totalsByMonth().toString(), actual.totalsByMonth().toString(), "query " + i);
+        }
+
+        // Each terminal reads the ledger as it is then
+        LedgerQuery query = partitioned.query().vendor("Vendor 2");
+        long before = query.count();
+        partitioned.add(new Transaction(OLDEST.plusDays(3), LocalTime.NOON, "later", "Vendor 2", BigDecimal.ONE));
+        assertEquals(before + 1, query.count());
+        assertEquals(before + 1, query.list().size());
+        partitioned.close();
+        plain.close();
+    }
+
+    // ARCHIVING IDENTICAL ROWS___________________
+    @Test
+    void identicalRowsSurviveArchivingAndRestarts(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("transactions.csv");
+        String coffee = OLDEST + "|08:15:00|coffee|Cafe|-3.50";
+        Files.write(csv, List.of(TransactionManager.HEADER, coffee, coffee));
+        TransactionManager manager = new TransactionManager(csv.toString(), SyncPolicy.ALWAYS, StorageLayout.ROWS, true);
+        assertEquals(2, manager.getAll().size());
+        manager.close();
+
+        // Three of the same: the ledger has two already, so one is new
+        Path export = dir.resolve("export.csv");
+        Files.write(export, List.of(coffee, coffee, coffee));
+        manager = new TransactionManager(csv.toString(), SyncPolicy.ALWAYS, StorageLayout.ROWS, true);
+        assertEquals(1, manager.importFile(export).getImported());
+        assertEquals(3, manager.getAll().size());
+        manager.close();
+
+        // Each start archives the backdated row next to its twins in the month file
+        for (int i = 0; i < 2; i++) {
+            manager = new TransactionManager(csv.toString(), SyncPolicy.ALWAYS, StorageLayout.ROWS, true);
+            assertEquals(3, manager.getAll().size());
+            manager.close();
+        }
+        Path month = LedgerPartitions.pathFor(csv).resolve(OLDEST.toString().substring(0, 7) + ".csv");
+        assertEquals(4, Files.readAllLines(month).size()); // header and three coffees
+    }
+
+    // The month files were committed but the process died before the CSV was rewritten
+    @Test
+    void archiveCutShortBeforeTheCsvRewriteIsFinishedOnRestart(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("transactions.csv");
+        String coffee = OLDEST + "|08:15:00|coffee|Cafe|-3.50";
+        String today = LocalDate.now() + "|09:00:00|lunch|Deli|-12.00";
+        Files.write(csv, List.of(TransactionManager.HEADER, coffee, coffee, coffee, today, today));
+
+        Path parts = LedgerPartitions.pathFor(csv);
+        LedgerPartitions crashed = new LedgerPartitions(parts, StorageLayout.ROWS, 1 << 20);
+        ArrayList<Transaction> cold = new ArrayList<>();
+        for (Transaction t : TransactionLoader.load(csv, new VendorDictionary()).getTransactions()) {
+            if (t.getDate().equals(OLDEST)) {
+                cold.add(t);
+            }
+        }
+        crashed.archive(cold, OLDEST.plusMonths(1), csv);
+        // and a month staged by a later archive that never reached its commit point
+        Path stray = parts.resolve(OLDEST.plusMonths(1).toString().substring(0, 7) + ".csv.new");
+        Files.write(stray, List.of(TransactionManager.HEADER, OLDEST.plusMonths(1) + "|10:00:00|never|Shop|-1.00"));
+
+        for (int i = 0; i < 2; i++) {
+            TransactionManager manager = new TransactionManager(csv.toString(), SyncPolicy.ALWAYS, StorageLayout.ROWS, true);
+            assertEquals(5, manager.getAll().size());
+            assertEquals(3, manager.getByVendor("cafe").size());
+            manager.close();
+            assertEquals(List.of(TransactionManager.HEADER, today, today), Files.readAllLines(csv));
+        }
+        assertTrue(Files.notExists(stray));
+        assertTrue(Files.notExists(parts.resolve("archive.pending")));
+    }
+}
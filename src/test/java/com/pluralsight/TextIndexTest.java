@@ -0,0 +1,180 @@
+package com.pluralsight;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class TextIndexTest {
+
+    private static final LocalDate FIRST = LocalDate.of(2024, 1, 1);
+    private static final String[] DESCRIPTIONS = {
+            "Invoice #1001 paid", "INVOICE 1002", "keyboard", "Keys cut", "key fob", "Monthly rent", "rent-a-car",
+            "Coffee", "coffee beans x2", "Refund: keyboard", "Invoice 1001 (again)"};
+    private static final String[] VENDORS = {"Acme Corp", "ACME", "Key Shop", "Bean There", "Landlord"};
+    private static final String[] QUERIES = {
+            "invoice", "INVOICE", "Invoice 1001", "1001", "key", "KEY*", "key*", "ke*", "k*", "board", "keyboard*",
+            "acme key*", "rent", "car", "coffee BEAN*", "bean*", "x2", "refund keyboard", "nobody", "  invoice  paid "};
+
+    private static Transaction row(int i, Random random) {
+        return new Transaction(FIRST.plusDays(random.nextInt(60)), LocalTime.of(random.nextInt(2) * 9, 0),
+                DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)] + " " + i, VENDORS[random.nextInt(VENDORS.length)],
+                BigDecimal.valueOf(-100, 2));
+    }
+
+    // The query by hand: every word is a whole word of the row (or starts one, for a word ending in *),
+    // ignoring case
+    private static boolean matches(Transaction t, String query) {
+        List<String> words = words(t.getDescription() + " " + t.getVendor());
+        for (String word : query.trim().split("\\s+")) {
+            boolean prefix = word.endsWith("*");
+            List<String> parts = words(prefix ? word.substring(0, word.length() - 1) : word);
+            for (int i = 0; i < parts.size(); i++) {
+                String part = parts.get(i);
+                boolean found = prefix && i == parts.size() - 1
+                        ? words.stream().anyMatch(w -> w.startsWith(part))
+                        : words.contains(part);
+                if (!found) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static List<String> words(String text) {
+        ArrayList<String> words = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static List<String> descriptions(List<Transaction> rows) {
+        return rows.stream().map(Transaction::getDescription).collect(Collectors.toList());
+    }
+
+    private static void check(LedgerStore store, String name) {
+        for (String query : QUERIES) {
+            ArrayList<Transaction> expected = new ArrayList<>();
+            for (Transaction t : store.oldestFirst()) {
+                if (matches(t, query)) {
+                    expected.add(t);
+                }
+            }
+            Collections.reverse(expected);
+            assertEquals(descriptions(expected), descriptions(store.search(query)), name + " \"" + query + "\"");
+        }
+    }
+
+    // SEARCH_____________________________________
+    @Test
+    void searchesMatchTheWordsOfEveryRow() {
+        Random random = new Random(23);
+        ArrayList<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            rows.add(row(i, random));
+        }
+        LedgerStore store = new LedgerStore();
+        store.addAll(rows);
+        check(store, "built");
+
+        // Rows added one at a time, on the end and back-dated between others
+        for (int i = 1_000; i < 1_200; i++) {
+            store.add(row(i, random));
+        }
+        check(store, "after adds");
+
+        // Rebuilding from the same rows gives the same index
+        LedgerStore rebuilt = new LedgerStore();
+        rebuilt.addAll(store.oldestFirst());
+        check(rebuilt, "rebuilt");
+        for (String query : QUERIES) {
+            assertEquals(descriptions(store.search(query)), descriptions(rebuilt.search(query)), query);
+        }
+    }
+
+    // The index only has whole words: a shorter query finds longer words as a prefix, never in the middle
+    @Test
+    void shortQueriesMatchOnlyAsPrefixes() {
+        LedgerStore store = new LedgerStore();
+        store.add(new Transaction(FIRST, LocalTime.NOON, "Keyboard", "Key Shop", BigDecimal.ONE));
+        store.add(new Transaction(FIRST, LocalTime.NOON, "MONKEY wrench", "Tools", BigDecimal.ONE));
+
+        assertEquals(List.of("Keyboard"), descriptions(store.search("KEY")));      // the vendor's word
+        assertEquals(List.of("Keyboard"), descriptions(store.search("keyb*")));
+        assertEquals(List.of("Keyboard"), descriptions(store.search("KeY*")));
+        assertEquals(List.of("MONKEY wrench"), descriptions(store.search("monkey")));
+        assertEquals(List.of(), descriptions(store.search("keyb")));
+        assertEquals(List.of(), descriptions(store.search("board")));
+        assertEquals(List.of(), descriptions(store.search("onkey*")));
+        assertEquals(List.of(), descriptions(store.search("*")));
+    }
+
+    // INDEX______________________________________
+    // Rows only leave a store by rebuilding it without them (as archiving does to the rows it moves out);
+    // the rebuilt index has none of their positions and the rest shift down with their rows
+    @Test
+    void rebuildingWithoutRowsDropsThemFromTheIndex() {
+        Random random = new Random(29);
+        ArrayList<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            rows.add(row(i, random));
+        }
+        ArrayList<Transaction> kept = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (i % 3 != 0) {
+                kept.add(rows.get(i));
+            }
+        }
+        TextIndex index = TextIndex.build(kept);
+        for (String query : QUERIES) {
+            ArrayList<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < kept.size(); i++) {
+                if (matches(kept.get(i), query)) {
+                    expected.add(i);
+                }
+            }
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), index.search(query, kept.size()), query);
+        }
+    }
+
+    // A search sees only the rows of the View it runs on, while the writer keeps inserting
+    @Test
+    void searchesSeeOnlyTheRowsTheyWereGiven() {
+        Random random = new Random(31);
+        ArrayList<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            rows.add(row(i, random));
+        }
+        TextIndex index = TextIndex.build(rows);
+        index.publish();
+        int[] before = index.search("invoice", rows.size());
+
+        // On the end: the same index grows, and a search over the old row count can't see the new row
+        Transaction last = new Transaction(FIRST.plusDays(90), LocalTime.NOON, "invoice 9999", "Acme", BigDecimal.ONE);
+        assertEquals(index, index.insert(rows.size(), last, true));
+        assertArrayEquals(before, index.search("invoice", rows.size()));
+        assertEquals(before.length + 1, index.search("invoice", rows.size() + 1).length);
+
+        // Further back: a shifted copy, and the published index doesn't change
+        Transaction early = new Transaction(FIRST.minusDays(1), LocalTime.NOON, "invoice 0", "Acme", BigDecimal.ONE);
+        TextIndex shifted = index.insert(0, early, false);
+        assertArrayEquals(before, index.search("invoice", rows.size()));
+        rows.add(last);
+        rows.add(0, early);
+        assertArrayEquals(TextIndex.build(rows).search("invoice", rows.size()), shifted.search("invoice", rows.size()));
+        assertEquals(0, shifted.search("invoice", rows.size())[0]);
+    }
+}
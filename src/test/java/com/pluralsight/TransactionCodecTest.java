@@ -0,0 +1,138 @@
+package com.pluralsight;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// TransactionCodec has to read and write exactly what the original split()/toString() code did,
+// so every test here compares it with that code (kept below as the reference) byte for byte.
+class TransactionCodecTest {
+
+    // THE ORIGINAL FORMAT________________________
+    private static String referenceFormat(Transaction t) {
+        return t.getDate() + "|" + t.getTime().format(DateTimeFormatter.ofPattern("HH:mm:ss")) +
+                "|" + t.getDescription() + "|" + t.getVendor() + "|" + t.getAmount();
+    }
+
+    private static Transaction referenceParse(String line) {
+        String[] parts = line.split("\\|");
+        return new Transaction(LocalDate.parse(parts[0]), LocalTime.parse(parts[1]), parts[2], parts[3],
+                new BigDecimal(parts[4]));
+    }
+
+    // Both readers agree on every field, and the codec writes the same bytes as the original
+    private static void assertSameAsReference(String line) {
+        Transaction expected = referenceParse(line);
+        Transaction actual = TransactionCodec.parse(line);
+        assertEquals(expected.getDate(), actual.getDate(), line);
+        assertEquals(expected.getTime(), actual.getTime(), line);
+        assertEquals(expected.getDescription(), actual.getDescription(), line);
+        assertEquals(expected.getVendor(), actual.getVendor(), line);
+        assertEquals(expected.getAmount(), actual.getAmount(), line); // equals() also compares the scale
+        assertArrayEquals(referenceFormat(expected).getBytes(StandardCharsets.UTF_8),
+                TransactionCodec.format(actual).getBytes(StandardCharsets.UTF_8), line);
+    }
+
+    // ROUND TRIPS________________________________
+    @Test
+    void sampleRowsRoundTripByteForByte() {
+        for (String line : List.of(
+                "2023-04-15|10:13:25|ergonomic keyboard|Amazon|-89.50",
+                "2023-04-15|11:15:00|Invoice 1001 paid|Joe|1500.00")) {
+            assertSameAsReference(line);
+            assertEquals(line, TransactionCodec.format(TransactionCodec.parse(line)));
+        }
+    }
+
+    @Test
+    void unusualFieldsMatchTheOriginalCode() {
+        for (String line : List.of(
+                "2024-02-29|00:00:00|leap day|Bank|0",              // no decimals
+                "2024-01-01|23:59:59|late|Bank|+12.5",              // explicit plus sign, one decimal
+                "2024-01-01|08:30|no seconds|Bank|1.00",            // HH:mm is written back as HH:mm:ss
+                "2024-01-01|08:30:15.250|fraction|Bank|1.00",       // fractions of a second are dropped
+                "0999-12-31|12:00:00|old year|Bank|3.10",           // years outside 1000-9999
+                "+10000-01-01|12:00:00|far future|Bank|3.10",
+                "2024-01-01|12:00:00||Empty Description|4.00",
+                "2024-01-01|12:00:00|café ☕ 日本|Ünïcode|4.00",      // multi-byte text
+                "2024-01-01|12:00:00|big|Bank|12345678901234567.89", // more digits than the fast path takes
+                "2024-01-01|12:00:00|exponent|Bank|1E+3",
+                "2024-01-01|12:00:00|trailing zeros|Bank|7.0000",
+                "2024-01-01|12:00:00|  spaces kept  | Vendor |9.99")) {
+            assertSameAsReference(line);
+        }
+    }
+
+    @Test
+    void fieldsAfterTheAmountAreIgnoredLikeBefore() {
+        Transaction t = TransactionCodec.parse("2024-01-01|12:00:00|extra|Bank|5.00|ignored|too");
+        assertEquals("2024-01-01|12:00:00|extra|Bank|5.00", TransactionCodec.format(t));
+    }
+
+    @Test
+    void randomRowsRoundTripByteForByte() {
+        Random random = new Random(42);
+        String[] words = {"coffee", "Invoice", "rent", "ünïcode", "A&B", "x", "", "refund #12"};
+        for (int i = 0; i < 20_000; i++) {
+            LocalDate date = LocalDate.ofEpochDay(random.nextInt(80_000) - 10_000);
+            LocalTime time = LocalTime.ofSecondOfDay(random.nextInt(24 * 60 * 60));
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong() % 10_000_000_000L, random.nextInt(3));
+            Transaction t = new Transaction(date, time, words[random.nextInt(words.length)] + " " + i,
+                    words[random.nextInt(words.length)], amount);
+            String line = referenceFormat(t);
+            assertEquals(line, TransactionCodec.format(t));
+            assertSameAsReference(line);
+        }
+    }
+
+    @Test
+    void fileRewrittenThroughTheCodecIsByteIdentical(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("transactions.csv");
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add(TransactionManager.HEADER);
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            lines.add(LocalDate.of(2020, 1, 1).plusDays(i / 10) + "|" + String.format("%02d:%02d:%02d", i % 24, i % 60, (i * 7) % 60)
+                    + "|row " + i + "|Vendor " + (i % 37) + "|" + BigDecimal.valueOf(random.nextInt(2_000_000) - 1_000_000, 2));
+        }
+        Files.write(csv, lines);
+
+        ArrayList<Transaction> rows = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            rows.add(TransactionCodec.parse(line));
+        }
+        Path copy = dir.resolve("copy.csv");
+        TransactionJournal.rewrite(copy, TransactionManager.HEADER, rows);
+        assertArrayEquals(Files.readAllBytes(csv), Files.readAllBytes(copy));
+    }
+
+    // COMMA-SEPARATED IMPORTS____________________
+    @Test
+    void commaSeparatedRowsReadTheSameFields() {
+        byte[] line = "2024-03-01,09:15:00,\"Lunch, with \"\"Bob\"\"\",Cafe,-12.40".getBytes(StandardCharsets.UTF_8);
+        Transaction t = TransactionCodec.parseCommaSeparated(line, 0, line.length, null);
+        assertEquals("2024-03-01|09:15:00|Lunch, with \"Bob\"|Cafe|-12.40", TransactionCodec.format(t));
+    }
+
+    // BAD LINES__________________________________
+    @Test
+    void malformedLinesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> TransactionCodec.parse("2024-01-01|10:00:00|missing fields"));
+        assertThrows(RuntimeException.class, () -> TransactionCodec.parse("2025-13-01|10:00:00|typo|X|1.00"));
+        assertThrows(RuntimeException.class, () -> TransactionCodec.parse("2024-01-01|25:00:00|hour|X|1.00"));
+        assertThrows(RuntimeException.class, () -> TransactionCodec.parse("2024-01-01|10:00:00|amount|X|ten"));
+    }
+}
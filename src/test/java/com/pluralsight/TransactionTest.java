@@ -0,0 +1,69 @@
+package com.pluralsight;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Amounts with a fraction of a cent loaded before the ledger kept cents, so they have to keep loading
+class TransactionTest {
+
+    private static final String FEE = "2024-01-02|10:00:00|fee|Bank|-0.005";
+
+    @Test
+    void fractionsOfACentRoundAwayFromZero() {
+        assertEquals(-1, Transaction.centsOf(new BigDecimal("-0.005")));
+        assertEquals(1, Transaction.centsOf(new BigDecimal("0.001")));
+        assertEquals(-8950, Transaction.centsOf(new BigDecimal("-89.50")));
+        assertEquals(100000, Transaction.centsOf(new BigDecimal("1E+3")));
+        assertThrows(IllegalArgumentException.class, () -> Transaction.centsOf(new BigDecimal("1E+30")));
+    }
+
+    @Test
+    void exactAmountIsKeptAndShown() {
+        Transaction t = Transaction.fromCSV(FEE);
+        assertEquals(new BigDecimal("-0.005"), t.getAmount());
+        assertEquals(FEE, t.toCSV());
+        assertTrue(t.displayTransaction().endsWith("-0.005"));
+        assertTrue(Transaction.fromCSV("2024-01-02|10:00:00|fee|Bank|-0.50").displayTransaction().endsWith("-0.50"));
+    }
+
+    @Test
+    void newAmountsMustBeWholeCents(@TempDir Path dir) {
+        TransactionManager manager = new TransactionManager(dir.resolve("transactions.csv").toString());
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.createTransaction("fee", "Bank", new BigDecimal("0.005"), false));
+        manager.close();
+    }
+
+    // Loaded, compacted, snapshotted and reloaded in both layouts without losing the row or its exact amount
+    @Test
+    void subCentRowSurvivesEveryRewrite(@TempDir Path dir) throws Exception {
+        for (StorageLayout layout : StorageLayout.values()) {
+            Path csv = dir.resolve(layout + ".csv");
+            Files.writeString(csv, TransactionManager.HEADER + "\n\n" + FEE + "\n" + TransactionManager.HEADER + "\n");
+            TransactionManager manager = new TransactionManager(csv.toString(), SyncPolicy.ALWAYS, layout);
+            manager.writeSnapshot();
+            manager.close(); // waits for the compaction the untidy file asked for
+
+            assertEquals(List.of(TransactionManager.HEADER, FEE), Files.readAllLines(csv));
+            manager = new TransactionManager(csv.toString(), SyncPolicy.ALWAYS, layout);
+            manager.writeSnapshot();
+            manager.close();
+            List<Transaction> snapshot = LedgerSnapshot.read(LedgerSnapshot.pathFor(csv), csv, new VendorDictionary());
+            assertEquals(new BigDecimal("-0.005"), snapshot.get(0).getAmount());
+            manager = new TransactionManager(csv.toString(), SyncPolicy.ALWAYS, layout); // from the snapshot
+            List<Transaction> rows = manager.getPayments();
+            assertEquals(1, rows.size());
+            assertEquals(new BigDecimal("-0.005"), rows.get(0).getAmount());
+            assertEquals(-1, manager.getTotals(rows.get(0).getDate(), rows.get(0).getDate()).getNetCents());
+            manager.close();
+        }
+    }
+}